@@ -0,0 +1,234 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.AliasTable;
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A loot table specialized into a single method handle tree, with its constants, weights, and function chains bound
+ * directly into the handles.<br>
+ * Each pool becomes a counted loop whose conditions are guards, and static pools (see {@link PoolEntries}) select
+ * their entry with a table switch over their precomputed alias table. Item entries become a constant item piped
+ * through each of their functions, each invoked on its concrete class so the call is monomorphic. Once a compiled
+ * table is hot, the JVM customizes its handle tree into bytecode specific to this table, so this behaves like a
+ * generated class per table without defining any classes; once the compiled table is unreachable (e.g. after a
+ * reload), everything it generated can be unloaded.<br>
+ * Compiled tables generate exactly the same items as {@link LootTable#generate(LootContext, Consumer)} for the same
+ * context and random state. The table itself remains available as a fallback via {@link #table()}.
+ */
+public final class CompiledTable implements LootGenerator {
+
+    private static final @NotNull MethodType GENERATOR = MethodType.methodType(void.class, LootContext.class, Consumer.class);
+
+    private static final @NotNull MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final @NotNull MethodHandle NOOP = MethodHandles.empty(GENERATOR);
+    private static final @NotNull MethodType TEST = MethodType.methodType(boolean.class, LootContext.class);
+    private static final @NotNull MethodType GET_INT = MethodType.methodType(int.class, LootContext.class);
+    private static final @NotNull MethodHandle ADD_BONUS_ROLLS;
+    private static final @NotNull MethodHandle WRAP_SINK;
+    private static final @NotNull MethodHandle SAMPLE;
+    private static final @NotNull MethodHandle PICK_AND_GENERATE;
+    private static final @NotNull MethodHandle ACCEPT;
+
+    static {
+        try {
+            ADD_BONUS_ROLLS = LOOKUP.findStatic(CompiledTable.class, "addBonusRolls",
+                    MethodType.methodType(int.class, int.class, LootNumber.class, LootContext.class));
+            WRAP_SINK = LOOKUP.findStatic(CompiledTable.class, "wrapSink",
+                    MethodType.methodType(Consumer.class, List.class, LootContext.class, Consumer.class));
+            SAMPLE = LOOKUP.findStatic(CompiledTable.class, "sample",
+                    MethodType.methodType(int.class, AliasTable.class, LootContext.class));
+            PICK_AND_GENERATE = LOOKUP.findStatic(CompiledTable.class, "pickAndGenerate",
+                    MethodType.methodType(void.class, List.class, LootContext.class, Consumer.class));
+            ACCEPT = LOOKUP.findVirtual(Consumer.class, "accept", MethodType.methodType(void.class, Object.class))
+                    .asType(MethodType.methodType(void.class, Consumer.class, ItemStack.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final @NotNull LootTable table;
+    private final @NotNull MethodHandle generator;
+
+    private CompiledTable(@NotNull LootTable table, @NotNull MethodHandle generator) {
+        this.table = table;
+        this.generator = generator;
+    }
+
+    /**
+     * Compiles the provided table.
+     * @param table the table to compile
+     * @return the compiled table
+     */
+    public static @NotNull CompiledTable compile(@NotNull LootTable table) {
+        MethodHandle generator = NOOP;
+        for (LootPool pool : table.pools()) {
+            // Folding runs the combiner (the pools so far) before the target (this pool)
+            generator = MethodHandles.foldArguments(pool(pool), generator);
+        }
+        return new CompiledTable(table, withFunctions(generator, table.functions()));
+    }
+
+    /**
+     * Returns the table this was compiled from.
+     */
+    public @NotNull LootTable table() {
+        return table;
+    }
+
+    @Override
+    public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
+        List<ItemStack> items = new ArrayList<>();
+        generate(context, items::add);
+        return items;
+    }
+
+    @Override
+    public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        LootContextImpl.startGeneration(context);
+        try {
+            generator.invokeExact(RandomSequences.apply(context, table.randomSequence()), sink);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static @NotNull MethodHandle pool(@NotNull LootPool pool) {
+        // (int roll, LootContext, Consumer) -> void
+        MethodHandle roll = MethodHandles.dropArguments(roll(pool.entries()), 0, int.class);
+
+        MethodHandle generator = MethodHandles.countedLoop(rolls(pool), null, roll);
+        generator = withFunctions(generator, pool.functions());
+
+        List<LootPredicate> predicates = pool.predicates();
+        for (int i = predicates.size() - 1; i >= 0; i--) {
+            MethodHandle test = bind(LootPredicate.class, predicates.get(i), "test", TEST);
+            generator = MethodHandles.guardWithTest(test, generator, NOOP);
+        }
+
+        return generator;
+    }
+
+    /**
+     * Returns a handle computing a pool's rolls, of type (LootContext, Consumer) -> int.
+     */
+    private static @NotNull MethodHandle rolls(@NotNull LootPool pool) {
+        MethodHandle rolls = pool.rolls() instanceof LootNumber.Constant constant ?
+                MethodHandles.dropArguments(MethodHandles.constant(int.class, (int) constant.value()), 0, LootContext.class) :
+                bind(LootNumber.class, pool.rolls(), "getInt", GET_INT);
+        rolls = MethodHandles.dropArguments(rolls, 1, Consumer.class);
+
+        // A constant zero never adds rolls, whatever the luck is
+        if (pool.bonusRolls() instanceof LootNumber.Constant constant && constant.value() == 0) return rolls;
+
+        MethodHandle bonus = MethodHandles.insertArguments(ADD_BONUS_ROLLS, 1, pool.bonusRolls());
+        return MethodHandles.foldArguments(MethodHandles.dropArguments(bonus, 2, Consumer.class), rolls);
+    }
+
+    /**
+     * Returns a handle performing a single roll of the provided entries, of type (LootContext, Consumer) -> void.
+     */
+    private static @NotNull MethodHandle roll(@NotNull List<LootEntry> entries) {
+        if (!(entries instanceof PoolEntries pool) || pool.alias() == null) {
+            return PICK_AND_GENERATE.bindTo(entries);
+        }
+
+        MethodHandle[] cases = new MethodHandle[pool.size()];
+        for (int i = 0; i < cases.length; i++) {
+            cases[i] = MethodHandles.dropArguments(choice((LootEntry.Choice) pool.get(i)), 0, int.class);
+        }
+
+        MethodHandle fallback = MethodHandles.dropArguments(NOOP, 0, int.class);
+        MethodHandle select = MethodHandles.tableSwitch(fallback, cases);
+
+        return MethodHandles.foldArguments(select, SAMPLE.bindTo(pool.alias()));
+    }
+
+    /**
+     * Returns a handle generating the provided choice, of type (LootContext, Consumer) -> void.
+     */
+    private static @NotNull MethodHandle choice(@NotNull LootEntry.Choice choice) {
+        if (!(choice instanceof LootEntry.Item item)) {
+            return bind(LootGenerator.class, choice, "generate", GENERATOR);
+        }
+
+        // ItemStacks are immutable, so the base item can be shared
+        MethodHandle stack = MethodHandles.dropArguments(
+                MethodHandles.constant(ItemStack.class, ItemStack.of(item.name())), 0, LootContext.class);
+
+        MethodType apply = MethodType.methodType(ItemStack.class, ItemStack.class, LootContext.class);
+        for (LootFunction function : item.functions()) {
+            MethodHandle next = bind(LootFunction.class, function, "apply", apply);
+            stack = MethodHandles.permuteArguments(MethodHandles.collectArguments(next, 0, stack),
+                    MethodType.methodType(ItemStack.class, LootContext.class), 0, 0);
+        }
+
+        // (Consumer, LootContext) -> void, then swapped into the generator order
+        MethodHandle emit = MethodHandles.collectArguments(ACCEPT, 1, stack);
+        return MethodHandles.permuteArguments(emit, GENERATOR, 1, 0);
+    }
+
+    /**
+     * Applies the provided functions to every item the generator emits, by replacing its sink.
+     */
+    private static @NotNull MethodHandle withFunctions(@NotNull MethodHandle generator, @NotNull List<LootFunction> functions) {
+        if (functions.isEmpty()) return generator;
+
+        // (Consumer wrapped, LootContext, Consumer sink) -> void, ignoring the original sink
+        MethodHandle target = MethodHandles.permuteArguments(generator,
+                MethodType.methodType(void.class, Consumer.class, LootContext.class, Consumer.class), 1, 0);
+        return MethodHandles.foldArguments(target, WRAP_SINK.bindTo(functions));
+    }
+
+    /**
+     * Binds the provided method to the receiver, looking it up on the receiver's own class where possible so that
+     * invoking it doesn't need any dispatch.
+     */
+    private static @NotNull MethodHandle bind(@NotNull Class<?> type, @NotNull Object receiver, @NotNull String name, @NotNull MethodType method) {
+        try {
+            MethodHandle handle;
+            try {
+                handle = LOOKUP.findVirtual(receiver.getClass(), name, method);
+            } catch (IllegalAccessException e) {
+                handle = LOOKUP.findVirtual(type, name, method);
+            }
+            return handle.bindTo(receiver);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not bind " + type.getSimpleName() + "#" + name + " of " + receiver, e);
+        }
+    }
+
+    private static int addBonusRolls(int rolls, @NotNull LootNumber bonusRolls, @NotNull LootContext context) {
+        Double luck = context.get(LootContext.LUCK);
+        if (luck != null) {
+            rolls += (int) Math.floor(luck * bonusRolls.getDouble(context));
+        }
+        return rolls;
+    }
+
+    private static @NotNull Consumer<ItemStack> wrapSink(@NotNull List<LootFunction> functions, @NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        return LootFunction.apply(functions, sink, context);
+    }
+
+    private static int sample(@NotNull AliasTable alias, @NotNull LootContext context) {
+        return alias.sample(context.require(LootContext.RANDOM));
+    }
+
+    private static void pickAndGenerate(@NotNull List<LootEntry> entries, @NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        LootEntry.Choice choice = LootPool.pickChoice(entries, context);
+        if (choice != null) {
+            choice.generate(context, sink);
+        }
+    }
+
+}
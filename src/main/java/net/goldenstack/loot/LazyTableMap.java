@@ -0,0 +1,94 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An unmodifiable table registry that only knows the file of each table until it's first requested, at which point
+ * the table is read, cached, and returned.<br>
+ * Concurrent first requests for the same table read it exactly once; other callers wait for the result. Tables that
+ * fail to read are not cached, so they're attempted again on the next request.
+ */
+final class LazyTableMap extends AbstractMap<NamespaceID, LootTable> {
+
+    private final @NotNull Map<NamespaceID, Path> files;
+    private final @NotNull ConcurrentHashMap<NamespaceID, LootTable> loaded = new ConcurrentHashMap<>();
+
+    LazyTableMap(@NotNull Map<NamespaceID, Path> files) {
+        this.files = Map.copyOf(files);
+    }
+
+    @Override
+    public @Nullable LootTable get(Object key) {
+        LootTable table = loaded.get(key);
+        if (table != null) return table;
+
+        if (!(key instanceof NamespaceID id)) return null;
+
+        Path path = files.get(id);
+        if (path == null) return null;
+
+        return loaded.computeIfAbsent(id, ignored -> {
+            try {
+                return Trove.readTable(path);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Could not read loot table '" + id + "' from " + path, e);
+            }
+        });
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return files.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return files.size();
+    }
+
+    @Override
+    public @NotNull Set<NamespaceID> keySet() {
+        return files.keySet();
+    }
+
+    /**
+     * Returns a view of this map's entries. Iterating over it reads every table that has not been read yet.
+     */
+    @Override
+    public @NotNull Set<Entry<NamespaceID, LootTable>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<NamespaceID, LootTable>> iterator() {
+                Iterator<NamespaceID> keys = files.keySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<NamespaceID, LootTable> next() {
+                        NamespaceID key = keys.next();
+                        return Map.entry(key, LazyTableMap.this.get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return files.size();
+            }
+        };
+    }
+
+}
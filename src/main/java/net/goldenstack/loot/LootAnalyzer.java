@@ -0,0 +1,893 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.EnchantmentUtils;
+import net.goldenstack.loot.util.LootNumberRange;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Computes the distribution of the loot a table generates for a context directly from the table's structure, without
+ * generating any loot.<br>
+ * For every material, the analyzer computes the probability of each amount of it being generated. Conditions that
+ * don't depend on randomness are evaluated against the context once. Random chances, table bonuses, explosion decay
+ * and survival, uniform and binomial numbers, set and limit count, and apply bonus are modeled exactly, as are pool
+ * rolls, entry weights, and nested tables. The result is exact up to floating point error, so drops with very small
+ * chances are computed as precisely as common ones.<br>
+ * Anything else that may depend on randomness (e.g. a custom predicate, or a function that can change an item's
+ * material) is estimated by sampling only the smallest part that contains it, such as a single predicate, number,
+ * or choice, and is reported in {@link Result#approximations()}.
+ */
+public final class LootAnalyzer {
+
+    private static final int DEFAULT_SAMPLES = 100_000;
+
+    /**
+     * The most entries with random conditions a pool may have before its rolls are sampled instead, as every subset
+     * of them passing has to be considered.
+     */
+    private static final int MAX_RANDOM_ENTRIES = 12;
+
+    private static final @NotNull String ALGORITHM = "L64X128MixRandom";
+
+    /**
+     * The result of analyzing a table.
+     * @param drops the distribution of each material that may be generated, ordered by material ID
+     * @param approximations a description of each kind of node that had to be sampled, mapped to how often it was
+     */
+    public record Result(@NotNull Map<Material, Drop> drops, @NotNull Map<String, Integer> approximations) {
+        public Result {
+            drops = Collections.unmodifiableMap(new LinkedHashMap<>(drops));
+            approximations = Collections.unmodifiableMap(new LinkedHashMap<>(approximations));
+        }
+
+        /**
+         * Returns whether every part of the table was modeled exactly.
+         */
+        public boolean exact() {
+            return approximations.isEmpty();
+        }
+
+        /**
+         * Returns the distribution of the provided material, which is always zero if it can't be generated.
+         * @param material the material to get the distribution of
+         * @return the material's distribution
+         */
+        public @NotNull Drop get(@NotNull Material material) {
+            Drop drop = drops.get(material);
+            return drop != null ? drop : new Drop(material, new double[]{1});
+        }
+    }
+
+    /**
+     * The distribution of the total amount of one material generated by a table.
+     * @param material the material
+     * @param distribution the probability of exactly {@code i} items being generated at each index {@code i}
+     */
+    public record Drop(@NotNull Material material, double @NotNull [] distribution) {
+
+        @Override
+        public double @NotNull [] distribution() {
+            return distribution.clone();
+        }
+
+        /**
+         * Returns the probability of exactly the provided amount of this material being generated.
+         */
+        public double probability(int amount) {
+            return amount >= 0 && amount < distribution.length ? distribution[amount] : 0;
+        }
+
+        /**
+         * Returns the probability of at least one of this material being generated.
+         */
+        public double chance() {
+            return 1 - probability(0);
+        }
+
+        /**
+         * Returns the expected amount of this material generated.
+         */
+        public double mean() {
+            double mean = 0;
+            for (int i = 1; i < distribution.length; i++) mean += i * distribution[i];
+            return mean;
+        }
+
+        @Override
+        public String toString() {
+            return "Drop[material=" + material.name() + ", mean=" + mean() + ", chance=" + chance() + "]";
+        }
+    }
+
+    private final @NotNull LootContext context;
+    private final @NotNull LootContext sampling;
+    private final int samples;
+
+    private final @NotNull Map<String, Integer> approximations = new LinkedHashMap<>();
+    private final @NotNull Set<LootTable> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private LootAnalyzer(@NotNull LootContext context, @NotNull LootContext sampling, int samples) {
+        this.context = context;
+        this.sampling = sampling;
+        this.samples = samples;
+    }
+
+    /**
+     * Analyzes the provided table, sampling anything that can't be modeled 100,000 times.
+     * @param table the table to analyze
+     * @param context the context to analyze the table with
+     * @return the distribution of every material the table may generate
+     */
+    public static @NotNull Result analyze(@NotNull LootTable table, @NotNull LootContext context) {
+        return analyze(table, context, DEFAULT_SAMPLES, 0);
+    }
+
+    /**
+     * Analyzes the provided table.<br>
+     * The context's own {@link LootContext#RANDOM} is never used; samples are drawn from a random seeded with the
+     * provided seed, so the result is the same for the same seed.
+     * @param table the table to analyze
+     * @param context the context to analyze the table with
+     * @param samples how many times to sample each part of the table that can't be modeled
+     * @param seed the seed of the random used for sampling
+     * @return the distribution of every material the table may generate
+     */
+    public static @NotNull Result analyze(@NotNull LootTable table, @NotNull LootContext context, int samples, long seed) {
+        if (samples < 1) throw new IllegalArgumentException("Cannot take " + samples + " samples");
+
+        Random random = Random.from(RandomGeneratorFactory.of(ALGORITHM).create(seed));
+        LootAnalyzer analyzer = new LootAnalyzer(context, LootContextImpl.with(context, LootContext.RANDOM, random), samples);
+
+        // Only a table that is already being analyzed has no outcome, so the outermost table always has one
+        Map<Material, double[]> marginals = Objects.requireNonNull(analyzer.table(table, List.of()));
+
+        List<Material> materials = new ArrayList<>(marginals.keySet());
+        materials.sort(Comparator.comparingInt(Material::id));
+
+        Map<Material, Drop> drops = new LinkedHashMap<>();
+        for (Material material : materials) {
+            drops.put(material, new Drop(material, marginals.get(material)));
+        }
+        return new Result(drops, analyzer.approximations);
+    }
+
+    private void approximate(@NotNull String description) {
+        approximations.merge(description, 1, Integer::sum);
+    }
+
+    // Outcomes are represented as the distribution of the total amount of each material, indexed by amount. Materials
+    // missing from an outcome are never generated in it. Outcomes of independent parts (e.g. pools) are summed by
+    // convolving the distribution of each material.
+
+    /**
+     * Returns the outcome of the provided table, with the provided functions applied to every item it generates
+     * after its own, or null if the table is already being analyzed.
+     */
+    private @Nullable Map<Material, double[]> table(@NotNull LootTable table, @NotNull List<LootFunction> after) {
+        if (!visiting.add(table)) return null;
+
+        try {
+            List<LootFunction> functions = concat(table.functions(), after);
+
+            Map<Material, double[]> outcome = Map.of();
+            for (LootPool pool : table.pools()) {
+                outcome = sum(outcome, pool(pool, functions));
+            }
+            return outcome;
+        } finally {
+            visiting.remove(table);
+        }
+    }
+
+    private @NotNull Map<Material, double[]> pool(@NotNull LootPool pool, @NotNull List<LootFunction> after) {
+        double pass = probability(pool.predicates());
+        if (pass == 0) return Map.of();
+
+        Map<Integer, Double> rolls = integers(pool.rolls());
+
+        Double luck = context.get(LootContext.LUCK);
+        if (luck != null) {
+            rolls = convolve(rolls, bonusRolls(pool.bonusRolls(), luck));
+        }
+
+        Map<Material, double[]> roll = roll(pool.entries(), concat(pool.functions(), after));
+
+        int max = 0;
+        for (int count : rolls.keySet()) max = Math.max(max, count);
+
+        // Rolls are independent, so n rolls are the n-fold sum of a single roll
+        List<Double> weights = new ArrayList<>();
+        List<Map<Material, double[]>> outcomes = new ArrayList<>();
+        Map<Material, double[]> rolled = Map.of();
+        for (int count = 1; count <= max; count++) {
+            rolled = sum(rolled, roll);
+
+            double probability = rolls.getOrDefault(count, 0d);
+            if (probability > 0) {
+                weights.add(probability * pass);
+                outcomes.add(rolled);
+            }
+        }
+
+        return mix(weights, outcomes);
+    }
+
+    private @NotNull Map<Integer, Double> bonusRolls(@NotNull LootNumber bonus, double luck) {
+        if (deterministic(bonus)) {
+            return Map.of((int) Math.floor(luck * bonus.getDouble(context)), 1d);
+        }
+
+        approximate("Sampled bonus rolls of type " + bonus.getClass().getSimpleName());
+
+        Map<Integer, Double> distribution = new HashMap<>();
+        for (int i = 0; i < samples; i++) {
+            distribution.merge((int) Math.floor(luck * bonus.getDouble(sampling)), 1d / samples, Double::sum);
+        }
+        return distribution;
+    }
+
+    /**
+     * Returns the outcome of a single roll of the provided entries.
+     */
+    private @NotNull Map<Material, double[]> roll(@NotNull List<LootEntry> entries, @NotNull List<LootFunction> after) {
+        // Each group of choices is requested together with some probability, independently of the others
+        List<Double> probabilities = new ArrayList<>();
+        List<List<LootEntry.Choice>> groups = new ArrayList<>();
+
+        for (LootEntry entry : entries) {
+            if (entry instanceof LootEntry.Choice.Single single && (PoolEntries.isBuiltinSingle(single) || single instanceof LootEntry.Tag)) {
+                double probability = probability(single.predicates());
+                if (probability == 0) continue;
+
+                probabilities.add(probability);
+                groups.add(choices(single));
+            } else if (deterministic(entry)) {
+                probabilities.add(1d);
+                groups.add(entry.requestChoices(context));
+            } else {
+                approximate("Sampled rolls of a pool containing an entry of type " + entry.getClass().getSimpleName());
+                return sample(sink -> {
+                    LootEntry.Choice choice = LootPool.pickChoice(entries, sampling);
+                    if (choice != null) choice.generate(sampling, LootFunction.apply(after, sink, sampling));
+                });
+            }
+        }
+
+        List<Integer> random = new ArrayList<>();
+        for (int i = 0; i < probabilities.size(); i++) {
+            if (probabilities.get(i) < 1) random.add(i);
+        }
+
+        if (random.size() > MAX_RANDOM_ENTRIES) {
+            approximate("Sampled rolls of a pool with more than " + MAX_RANDOM_ENTRIES + " entries with random conditions");
+            return sample(sink -> {
+                LootEntry.Choice choice = LootPool.pickChoice(entries, sampling);
+                if (choice != null) choice.generate(sampling, LootFunction.apply(after, sink, sampling));
+            });
+        }
+
+        long[] groupWeights = new long[groups.size()];
+        long certainWeight = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            for (LootEntry.Choice choice : groups.get(i)) {
+                groupWeights[i] += Math.max(1, choice.getWeight(context));
+            }
+            if (probabilities.get(i) == 1) certainWeight += groupWeights[i];
+        }
+
+        // Consider every subset of the random groups passing, and the chance of each choice being picked in it
+        double[] picked = new double[groups.size()];
+        for (int mask = 0; mask < 1 << random.size(); mask++) {
+            double probability = 1;
+            long total = certainWeight;
+            for (int bit = 0; bit < random.size(); bit++) {
+                int group = random.get(bit);
+                if ((mask & (1 << bit)) != 0) {
+                    probability *= probabilities.get(group);
+                    total += groupWeights[group];
+                } else {
+                    probability *= 1 - probabilities.get(group);
+                }
+            }
+            if (probability == 0 || total == 0) continue;
+
+            for (int group = 0; group < groups.size(); group++) {
+                boolean present = probabilities.get(group) == 1 || (mask & (1 << random.indexOf(group))) != 0;
+                if (present) picked[group] += probability / total;
+            }
+        }
+
+        List<Double> weights = new ArrayList<>();
+        List<Map<Material, double[]>> outcomes = new ArrayList<>();
+        for (int group = 0; group < groups.size(); group++) {
+            if (picked[group] == 0) continue;
+
+            for (LootEntry.Choice choice : groups.get(group)) {
+                weights.add(picked[group] * Math.max(1, choice.getWeight(context)));
+                outcomes.add(choice(choice, after));
+            }
+        }
+        return mix(weights, outcomes);
+    }
+
+    /**
+     * Returns the choices the provided single entry requests when its conditions pass.
+     */
+    private @NotNull List<LootEntry.Choice> choices(@NotNull LootEntry.Choice.Single single) {
+        if (!(single instanceof LootEntry.Tag tag) || !tag.expand()) return List.of(single);
+
+        // An expanded tag is equivalent to a plain item entry with the tag's weight for each of its materials
+        List<LootEntry.Choice> choices = new ArrayList<>();
+        for (var key : tag.name().getValues()) {
+            Material material = Material.fromNamespaceId(key);
+            if (material == null) continue;
+
+            choices.add(new LootEntry.Item(List.of(), List.of(), tag.weight(), tag.quality(), material));
+        }
+        return choices;
+    }
+
+    /**
+     * Returns the outcome of generating the provided choice.
+     */
+    private @NotNull Map<Material, double[]> choice(@NotNull LootEntry.Choice choice, @NotNull List<LootFunction> after) {
+        Map<Material, double[]> outcome = switch (choice) {
+            case LootEntry.Item item -> stack(item.name(), concat(item.functions(), after));
+            case LootEntry.Empty ignored -> Map.of();
+            case LootEntry.Tag tag -> tag.expand() ? null : tag(tag, concat(tag.functions(), after));
+            case LootEntry.LootTable reference -> {
+                LootTable table = context.vanilla().tableRegistry(reference.value());
+                yield table != null ? table(table, concat(reference.functions(), after)) : Map.of();
+            }
+            case LootEntry.LinkedTable linked -> table(linked.table(), concat(linked.functions(), after));
+            default -> null;
+        };
+        if (outcome != null) return outcome;
+
+        approximate("Sampled choices of type " + choice.getClass().getSimpleName());
+        return sample(sink -> choice.generate(sampling, LootFunction.apply(after, sink, sampling)));
+    }
+
+    /**
+     * Returns the outcome of an unexpanded tag entry, which generates one stack of each of its materials, or null if
+     * any of the functions can't be modeled.
+     */
+    private @Nullable Map<Material, double[]> tag(@NotNull LootEntry.Tag tag, @NotNull List<LootFunction> functions) {
+        Map<Material, double[]> outcome = Map.of();
+        for (var key : tag.name().getValues()) {
+            Material material = Material.fromNamespaceId(key);
+            if (material == null) continue;
+
+            Map<Material, double[]> stack = stack(material, functions);
+            if (stack == null) return null;
+
+            outcome = sum(outcome, stack);
+        }
+        return outcome;
+    }
+
+    /**
+     * Returns the outcome of a single stack of the provided material with the provided functions applied to it, or
+     * null if any of the functions can't be modeled.
+     */
+    private @Nullable Map<Material, double[]> stack(@NotNull Material material, @NotNull List<LootFunction> functions) {
+        // The joint distribution of the stack's material and amount; an amount of zero is air, which stays air
+        Map<Material, double[]> stack = new LinkedHashMap<>();
+        stack.put(material, new double[]{0, 1});
+
+        for (LootFunction function : functions) {
+            stack = function(function, stack);
+            if (stack == null) return null;
+        }
+
+        Map<Material, double[]> outcome = new LinkedHashMap<>();
+        stack.forEach((type, joint) -> {
+            if (type == Material.AIR) return;
+
+            double generated = 0;
+            for (int i = 1; i < joint.length; i++) generated += joint[i];
+            if (generated == 0) return;
+
+            double[] distribution = joint.clone();
+            distribution[0] = 1 - generated;
+            outcome.put(type, distribution);
+        });
+        return outcome;
+    }
+
+    /**
+     * Returns the joint distribution of a stack after the provided function is applied to it, or null if the function
+     * can't be modeled.
+     */
+    private @Nullable Map<Material, double[]> function(@NotNull LootFunction function, @NotNull Map<Material, double[]> stack) {
+        if (function instanceof LootFunction.Sequence sequence) {
+            for (LootFunction inner : sequence.functions()) {
+                stack = function(inner, stack);
+                if (stack == null) return null;
+            }
+            return stack;
+        } else if (function instanceof LootFunction.ApplyBonus bonus) {
+            // Apply bonus doesn't check its conditions
+            return applyBonus(bonus, stack);
+        }
+
+        List<LootPredicate> predicates;
+        Map<Material, double[]> applied;
+
+        if (function instanceof LootFunction.LinkedReference reference) {
+            predicates = reference.predicates();
+            applied = function(reference.function(), stack);
+        } else if (function instanceof LootFunction.SetCount set) {
+            predicates = set.predicates();
+            Map<Integer, Double> count = integers(set.count());
+            applied = amounts(stack, amount -> shift(count, set.add() ? amount : 0));
+        } else if (function instanceof LootFunction.LimitCount limit) {
+            predicates = limit.predicates();
+            applied = deterministic(limit.limit()) ?
+                    amounts(stack, amount -> Map.of((int) limit.limit().limit(context, amount), 1d)) :
+                    null;
+        } else if (function instanceof LootFunction.ExplosionDecay decay) {
+            predicates = decay.predicates();
+            Float radius = context.get(LootContext.EXPLOSION_RADIUS);
+            float chance = radius != null ? 1 / radius : 1;
+            applied = radius == null ? stack : amounts(stack, amount -> distribution(binomial(amount, chance)));
+        } else if (function instanceof LootFunction.EnchantedCountIncrease increase) {
+            predicates = increase.predicates();
+            int level = EnchantmentUtils.level(context, LootContext.ATTACKING_ENTITY, increase.enchantment());
+            if (level == 0) {
+                applied = stack;
+            } else {
+                Map<Integer, Double> count = integers(increase.count());
+                applied = amounts(stack, amount -> {
+                    Map<Integer, Double> amounts = new HashMap<>();
+                    count.forEach((value, probability) -> {
+                        int increased = amount + level * value;
+                        amounts.merge(increase.limit() != null ? Math.min(increase.limit(), increased) : increased, probability, Double::sum);
+                    });
+                    return amounts;
+                });
+            }
+        } else if (function instanceof LootFunction.SetItem set) {
+            predicates = set.predicates();
+            applied = new LinkedHashMap<>();
+            for (var entry : stack.entrySet()) {
+                double[] joint = entry.getValue();
+                double[] air = new double[joint.length];
+                air[0] = joint[0];
+                double[] moved = joint.clone();
+                moved[0] = 0;
+                merge(applied, entry.getKey(), air);
+                merge(applied, set.item(), moved);
+            }
+        } else {
+            predicates = neutralPredicates(function);
+            if (predicates == null) return null;
+            applied = stack;
+        }
+
+        if (applied == null) return null;
+
+        double probability = probability(predicates);
+        if (probability == 1) return applied;
+        if (probability == 0) return stack;
+
+        Map<Material, double[]> mixed = new LinkedHashMap<>();
+        applied.forEach((material, joint) -> merge(mixed, material, scale(joint, probability)));
+        stack.forEach((material, joint) -> merge(mixed, material, scale(joint, 1 - probability)));
+        return mixed;
+    }
+
+    private @Nullable Map<Material, double[]> applyBonus(@NotNull LootFunction.ApplyBonus bonus, @NotNull Map<Material, double[]> stack) {
+        if (context.get(LootContext.TOOL) == null) return stack;
+
+        int level = EnchantmentUtils.level(context, LootContext.TOOL, bonus.enchantment());
+
+        return switch (bonus.formula()) {
+            case LootFunction.ApplyBonus.Formula.UniformBonusCount uniform -> {
+                int bound = uniform.bonusMultiplier() * level + 1;
+                yield bound > 0 ? amounts(stack, amount -> shift(uniform(0, bound - 1), amount)) : null;
+            }
+            case LootFunction.ApplyBonus.Formula.OreDrops ignored -> {
+                if (level <= 0) yield stack;
+
+                double lost = 1d / (level + 2);
+                yield amounts(stack, amount -> Map.of(0, lost, amount, 1 - lost));
+            }
+            case LootFunction.ApplyBonus.Formula.BinomialWithBonusCount binomial ->
+                    amounts(stack, amount -> shift(distribution(binomial(binomial.extra() + level, binomial.probability())), amount));
+        };
+    }
+
+    /**
+     * Returns the conditions of the provided function if it can't change the material or the amount of an item, or
+     * null if it may.
+     */
+    private static @Nullable List<LootPredicate> neutralPredicates(@NotNull LootFunction function) {
+        return switch (function) {
+            case LootFunction.SetPotion f -> f.predicates();
+            case LootFunction.CopyName f -> f.predicates();
+            case LootFunction.ToggleTooltips f -> f.predicates();
+            case LootFunction.SetStewEffect f -> f.predicates();
+            case LootFunction.SetOminousBottleAmplifier f -> f.predicates();
+            case LootFunction.CopyCustomData f -> f.predicates();
+            case LootFunction.SetLootTable f -> f.predicates();
+            case LootFunction.CopyComponents f -> f.predicates();
+            case LootFunction.CopyState f -> f.predicates();
+            case LootFunction.SetCustomData f -> f.predicates();
+            case LootFunction.SetCustomModelData f -> f.predicates();
+            case LootFunction.SetDamage f -> f.predicates();
+            case LootFunction.SetBookCover f -> f.predicates();
+            case LootFunction.FillPlayerHead f -> f.predicates();
+            case LootFunction.SetName f -> f.predicates();
+            case LootFunction.SetInstrument f -> f.predicates();
+            case LootFunction.SetAttributes f -> f.predicates();
+            case LootFunction.SetWritableBookPages f -> f.predicates();
+            case LootFunction.SetWrittenBookPages f -> f.predicates();
+            case LootFunction.SetBannerPattern f -> f.predicates();
+            case LootFunction.SetComponents f -> f.predicates();
+            case LootFunction.SetLore f -> f.predicates();
+            case LootFunction.SetFireworkExplosion f -> f.predicates();
+            case LootFunction.SetFireworks f -> f.predicates();
+            case LootFunction.ModifyContents f -> f.predicates();
+            case LootFunction.SetContents f -> f.predicates();
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns the probability of every provided condition passing.
+     */
+    private double probability(@NotNull List<LootPredicate> predicates) {
+        double probability = 1;
+        for (LootPredicate predicate : predicates) {
+            probability *= probability(predicate);
+            if (probability == 0) break;
+        }
+        return probability;
+    }
+
+    private double probability(@NotNull LootPredicate predicate) {
+        switch (predicate) {
+            case LootPredicate.AllOf all -> {
+                return probability(all.terms());
+            }
+            case LootPredicate.AnyOf any -> {
+                double none = 1;
+                for (LootPredicate term : any.terms()) none *= 1 - probability(term);
+                return 1 - none;
+            }
+            case LootPredicate.Inverted inverted -> {
+                return 1 - probability(inverted.term());
+            }
+            case LootPredicate.LinkedReference reference -> {
+                return probability(reference.predicate());
+            }
+            case LootPredicate.RandomChance chance -> {
+                return deterministic(chance.chance()) ? below(chance.chance().getDouble(context), 0x1p53) : sample(predicate);
+            }
+            case LootPredicate.TableBonus bonus -> {
+                int level = EnchantmentUtils.level(context, LootContext.TOOL, bonus.enchantment());
+                return below(bonus.chances().get(Math.min(bonus.chances().size() - 1, level)), 0x1p24);
+            }
+            case LootPredicate.SurvivesExplosion ignored -> {
+                Float radius = context.get(LootContext.EXPLOSION_RADIUS);
+                return radius == null ? 1 : atMost(1 / radius, 0x1p24);
+            }
+            case LootPredicate.RandomChanceWithEnchantedBonus bonus -> {
+                int level = EnchantmentUtils.level(context, LootContext.ATTACKING_ENTITY, bonus.enchantment());
+                return below(level > 0 ? bonus.enchantedChance().calc(level) : bonus.unenchantedChance(), 0x1p24);
+            }
+            default -> {
+                return deterministic(predicate) ? (predicate.test(context) ? 1 : 0) : sample(predicate);
+            }
+        }
+    }
+
+    private double sample(@NotNull LootPredicate predicate) {
+        approximate("Sampled conditions of type " + predicate.getClass().getSimpleName());
+
+        int passed = 0;
+        for (int i = 0; i < samples; i++) {
+            if (predicate.test(sampling)) passed++;
+        }
+        return (double) passed / samples;
+    }
+
+    /**
+     * Returns the probability of a random number from {@code [0, 1)} with the provided resolution (i.e. uniformly
+     * chosen from multiples of {@code 1 / resolution}) being less than the provided value.
+     */
+    private static double below(double value, double resolution) {
+        if (!(value > 0)) return 0;
+        return Math.min(1, Math.ceil(value * resolution) / resolution);
+    }
+
+    /**
+     * Returns the probability of a random number from {@code [0, 1)} with the provided resolution being at most the
+     * provided value.
+     */
+    private static double atMost(double value, double resolution) {
+        if (!(value >= 0)) return 0;
+        return Math.min(1, (Math.floor(value * resolution) + 1) / resolution);
+    }
+
+    /**
+     * Returns the distribution of the integer values of the provided number.
+     */
+    private @NotNull Map<Integer, Double> integers(@NotNull LootNumber number) {
+        if (deterministic(number)) {
+            return Map.of(number.getInt(context), 1d);
+        } else if (number instanceof LootNumber.Uniform uniform && deterministic(uniform.min()) && deterministic(uniform.max())) {
+            int min = uniform.min().getInt(context);
+            int max = uniform.max().getInt(context);
+            if (min <= max) return uniform(min, max);
+        } else if (number instanceof LootNumber.Binomial binomial && deterministic(binomial.trials()) && deterministic(binomial.probability())) {
+            return distribution(binomial(binomial.trials().getInt(context), binomial.probability().getDouble(context)));
+        }
+
+        approximate("Sampled numbers of type " + number.getClass().getSimpleName());
+
+        Map<Integer, Double> distribution = new HashMap<>();
+        for (int i = 0; i < samples; i++) {
+            distribution.merge(number.getInt(sampling), 1d / samples, Double::sum);
+        }
+        return distribution;
+    }
+
+    /**
+     * Returns whether the provided number never depends on randomness.
+     */
+    private static boolean deterministic(@NotNull LootNumber number) {
+        return number instanceof LootNumber.Constant || number instanceof LootNumber.Score ||
+                number instanceof LootNumber.Storage || number instanceof LootNumber.EnchantmentLevel;
+    }
+
+    private static boolean deterministic(@NotNull LootNumberRange range) {
+        return (range.min() == null || deterministic(range.min())) && (range.max() == null || deterministic(range.max()));
+    }
+
+    /**
+     * Returns whether the provided condition never depends on randomness.
+     */
+    private static boolean deterministic(@NotNull LootPredicate predicate) {
+        return switch (predicate) {
+            case LootPredicate.AllOf all -> all.terms().stream().allMatch(LootAnalyzer::deterministic);
+            case LootPredicate.AnyOf any -> any.terms().stream().allMatch(LootAnalyzer::deterministic);
+            case LootPredicate.Inverted inverted -> deterministic(inverted.term());
+            case LootPredicate.LinkedReference reference -> deterministic(reference.predicate());
+            case LootPredicate.ValueCheck check -> deterministic(check.value()) && deterministic(check.range());
+            case LootPredicate.TimeCheck check -> deterministic(check.value());
+            case LootPredicate.EntityScores scores -> scores.scores().values().stream().allMatch(LootAnalyzer::deterministic);
+            case LootPredicate.KilledByPlayer ignored -> true;
+            case LootPredicate.WeatherCheck ignored -> true;
+            case LootPredicate.EnchantmentActiveCheck ignored -> true;
+            case LootPredicate.BlockStateProperty ignored -> true;
+            case LootPredicate.DamageSourceProperties ignored -> true;
+            case LootPredicate.EntityProperties ignored -> true;
+            case LootPredicate.LocationCheck ignored -> true;
+            case LootPredicate.MatchTool ignored -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Returns whether the choices the provided entry requests never depend on randomness.
+     */
+    private static boolean deterministic(@NotNull LootEntry entry) {
+        return switch (entry) {
+            case LootEntry.Alternatives alternatives -> deterministic(alternatives.predicates(), alternatives.children());
+            case LootEntry.Sequence sequence -> deterministic(sequence.predicates(), sequence.children());
+            case LootEntry.Group group -> deterministic(group.predicates(), group.children());
+            case LootEntry.Choice.Single single ->
+                    PoolEntries.isBuiltinSingle(single) && single.predicates().stream().allMatch(LootAnalyzer::deterministic);
+            default -> false;
+        };
+    }
+
+    private static boolean deterministic(@NotNull List<LootPredicate> predicates, @NotNull List<LootEntry> children) {
+        return predicates.stream().allMatch(LootAnalyzer::deterministic) && children.stream().allMatch(LootAnalyzer::deterministic);
+    }
+
+    /**
+     * Estimates an outcome by running the provided generation, which sends its items to the provided sink, once per
+     * sample.
+     */
+    private @NotNull Map<Material, double[]> sample(@NotNull Consumer<Consumer<ItemStack>> generation) {
+        Map<Material, long[]> histograms = new HashMap<>();
+        Map<Material, Integer> amounts = new HashMap<>();
+
+        for (int i = 0; i < samples; i++) {
+            generation.accept(item -> {
+                if (!item.isAir() && item.amount() > 0) amounts.merge(item.material(), item.amount(), Integer::sum);
+            });
+
+            amounts.forEach((material, amount) -> {
+                long[] histogram = histograms.get(material);
+                if (histogram == null || amount >= histogram.length) {
+                    histogram = histogram == null ? new long[amount + 1] : Arrays.copyOf(histogram, amount + 1);
+                    histograms.put(material, histogram);
+                }
+                histogram[amount]++;
+            });
+            amounts.clear();
+        }
+
+        Map<Material, double[]> outcome = new LinkedHashMap<>();
+        histograms.forEach((material, histogram) -> {
+            double[] distribution = new double[histogram.length];
+            long generated = 0;
+            for (int amount = 1; amount < histogram.length; amount++) {
+                distribution[amount] = (double) histogram[amount] / samples;
+                generated += histogram[amount];
+            }
+            distribution[0] = (double) (samples - generated) / samples;
+            outcome.put(material, distribution);
+        });
+        return outcome;
+    }
+
+    /**
+     * Returns the joint distribution of a stack after each of its non-zero amounts is replaced with a value from the
+     * provided distribution. Amounts that end up non-positive become air.
+     */
+    private static @NotNull Map<Material, double[]> amounts(@NotNull Map<Material, double[]> stack, @NotNull IntFunction<Map<Integer, Double>> transition) {
+        Map<Material, double[]> result = new LinkedHashMap<>();
+        stack.forEach((material, joint) -> {
+            double[] updated = new double[]{joint[0]};
+            for (int amount = 1; amount < joint.length; amount++) {
+                if (joint[amount] == 0) continue;
+
+                double mass = joint[amount];
+                for (var entry : transition.apply(amount).entrySet()) {
+                    updated = add(updated, Math.max(0, entry.getKey()), mass * entry.getValue());
+                }
+            }
+            result.put(material, updated);
+        });
+        return result;
+    }
+
+    private static @NotNull Map<Integer, Double> shift(@NotNull Map<Integer, Double> distribution, int offset) {
+        if (offset == 0) return distribution;
+
+        Map<Integer, Double> shifted = new HashMap<>();
+        distribution.forEach((value, probability) -> shifted.put(value + offset, probability));
+        return shifted;
+    }
+
+    private static @NotNull Map<Integer, Double> convolve(@NotNull Map<Integer, Double> first, @NotNull Map<Integer, Double> second) {
+        Map<Integer, Double> sum = new HashMap<>();
+        first.forEach((a, pa) -> second.forEach((b, pb) -> sum.merge(a + b, pa * pb, Double::sum)));
+        return sum;
+    }
+
+    private static @NotNull Map<Integer, Double> uniform(int min, int max) {
+        Map<Integer, Double> distribution = new HashMap<>();
+        double probability = 1d / ((long) max - min + 1);
+        for (int value = min; value <= max; value++) {
+            distribution.put(value, probability);
+        }
+        return distribution;
+    }
+
+    private static @NotNull Map<Integer, Double> distribution(double @NotNull [] pmf) {
+        Map<Integer, Double> distribution = new HashMap<>();
+        for (int value = 0; value < pmf.length; value++) {
+            if (pmf[value] > 0) distribution.put(value, pmf[value]);
+        }
+        return distribution;
+    }
+
+    /**
+     * Returns the distribution of {@link net.goldenstack.loot.util.BinomialSampler#sample}.
+     */
+    private static double @NotNull [] binomial(int trials, double probability) {
+        if (trials <= 0 || !(probability > 0)) return new double[]{1};
+
+        double[] pmf = new double[trials + 1];
+        if (probability >= 1) {
+            pmf[trials] = 1;
+            return pmf;
+        }
+
+        // Computed in log space from the ratio of consecutive terms, so that large numbers of trials don't underflow
+        double odds = Math.log(probability) - Math.log1p(-probability);
+        double max = 0;
+        for (int k = 0; k < trials; k++) {
+            pmf[k + 1] = pmf[k] + Math.log((double) (trials - k) / (k + 1)) + odds;
+            max = Math.max(max, pmf[k + 1]);
+        }
+
+        double total = 0;
+        for (int k = 0; k <= trials; k++) {
+            pmf[k] = Math.exp(pmf[k] - max);
+            total += pmf[k];
+        }
+        for (int k = 0; k <= trials; k++) {
+            pmf[k] /= total;
+        }
+        return pmf;
+    }
+
+    /**
+     * Returns the outcome of two independent outcomes both happening.
+     */
+    private static @NotNull Map<Material, double[]> sum(@NotNull Map<Material, double[]> first, @NotNull Map<Material, double[]> second) {
+        if (first.isEmpty()) return second;
+        if (second.isEmpty()) return first;
+
+        Map<Material, double[]> sum = new LinkedHashMap<>(first);
+        second.forEach((material, distribution) -> sum.merge(material, distribution, LootAnalyzer::convolve));
+        return sum;
+    }
+
+    /**
+     * Returns the outcome of picking one of the provided outcomes with the provided probability each, or nothing
+     * with the remaining probability.
+     */
+    private static @NotNull Map<Material, double[]> mix(@NotNull List<Double> weights, @NotNull List<Map<Material, double[]>> outcomes) {
+        Map<Material, double[]> mixed = new LinkedHashMap<>();
+        Map<Material, Double> present = new HashMap<>();
+
+        for (int i = 0; i < outcomes.size(); i++) {
+            double weight = weights.get(i);
+            outcomes.get(i).forEach((material, distribution) -> {
+                merge(mixed, material, scale(distribution, weight));
+                present.merge(material, weight, Double::sum);
+            });
+        }
+
+        // Materials missing from an outcome are never generated in it
+        present.forEach((material, weight) -> mixed.put(material, add(mixed.get(material), 0, 1 - weight)));
+        return mixed;
+    }
+
+    private static void merge(@NotNull Map<Material, double[]> distributions, @NotNull Material material, double @NotNull [] distribution) {
+        distributions.merge(material, distribution, (a, b) -> {
+            double[] merged = Arrays.copyOf(a, Math.max(a.length, b.length));
+            for (int i = 0; i < b.length; i++) merged[i] += b[i];
+            return merged;
+        });
+    }
+
+    private static double @NotNull [] convolve(double @NotNull [] a, double @NotNull [] b) {
+        double[] result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0) continue;
+            for (int j = 0; j < b.length; j++) {
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        return result;
+    }
+
+    private static double @NotNull [] scale(double @NotNull [] distribution, double factor) {
+        double[] scaled = new double[distribution.length];
+        for (int i = 0; i < distribution.length; i++) scaled[i] = distribution[i] * factor;
+        return scaled;
+    }
+
+    private static double @NotNull [] add(double @NotNull [] distribution, int index, double probability) {
+        if (index >= distribution.length) distribution = Arrays.copyOf(distribution, index + 1);
+        distribution[index] += probability;
+        return distribution;
+    }
+
+    private static <T> @NotNull List<T> concat(@NotNull List<T> first, @NotNull List<T> second) {
+        if (first.isEmpty()) return second;
+        if (second.isEmpty()) return first;
+
+        List<T> list = new ArrayList<>(first.size() + second.size());
+        list.addAll(first);
+        list.addAll(second);
+        return list;
+    }
+
+}
@@ -0,0 +1,180 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * The loot generated for each of a list of contexts, stored in a single flat array. The items of the context at
+ * index {@code i} occupy the array from {@link #offset(int) offset(i)} until {@code offset(i + 1)}, in the order they
+ * were generated.<br>
+ * Batching doesn't precompute anything per batch, because nothing context-independent is left to hoist out of the
+ * per-context loop. Static pools already pick from an alias table built when the pool is created, and other pools
+ * gather their choices into reused per-thread arrays instead of rebuilding choice lists. Tag expansions are cached
+ * per tag, and constant numbers and conditions can be folded once when tables are loaded with
+ * {@link TableOptimizer}. What remains is evaluating conditions and numbers, which depends on each context. A batch
+ * therefore saves the per-context result lists, and can spread the contexts over a pool.<br>
+ * Batches are immutable.
+ * @see LootGenerator#generateBatch(List, ForkJoinPool)
+ */
+public final class LootBatch {
+
+    /**
+     * The number of contexts each task generates loot for when a batch is split across a pool.
+     */
+    private static final int SLICE = 64;
+
+    private final @NotNull ItemStack @NotNull [] items;
+    private final int @NotNull [] offsets;
+
+    private LootBatch(@NotNull ItemStack @NotNull [] items, int @NotNull [] offsets) {
+        this.items = items;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the number of contexts in this batch.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the index in {@link #items()} of the first item generated for the provided context, which is also the
+     * end of the previous context's items. The offset of {@link #size()} is the total number of items.
+     * @param index the index of the context
+     * @return the offset of the context's items
+     */
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the number of items generated for the provided context.
+     * @param index the index of the context
+     * @return the number of items generated for it
+     */
+    public int count(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * Returns an unmodifiable view of the items generated for the provided context.
+     * @param index the index of the context
+     * @return the items generated for it
+     */
+    public @NotNull List<ItemStack> get(int index) {
+        return Collections.unmodifiableList(Arrays.asList(items).subList(offsets[index], offsets[index + 1]));
+    }
+
+    /**
+     * Returns an unmodifiable view of every item in this batch, ordered by context.
+     */
+    public @NotNull List<ItemStack> items() {
+        return Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+    static @NotNull LootBatch generate(@NotNull LootGenerator generator, @NotNull List<LootContext> contexts, @Nullable ForkJoinPool pool) {
+        if (pool != null) {
+            // Without their own random, contexts would draw from random sequences, which are only safe on one thread
+            for (int i = 0; i < contexts.size(); i++) {
+                if (!contexts.get(i).has(LootContext.RANDOM)) {
+                    throw new IllegalArgumentException("Context " + i + " has no random, so it cannot be generated on a pool");
+                }
+            }
+        }
+
+        if (pool == null || contexts.size() <= SLICE) {
+            Buffer buffer = new Buffer(contexts.size());
+            buffer.generate(generator, contexts);
+            return buffer.batch();
+        }
+
+        List<ForkJoinTask<Buffer>> tasks = new ArrayList<>();
+        for (int start = 0; start < contexts.size(); start += SLICE) {
+            List<LootContext> slice = contexts.subList(start, Math.min(contexts.size(), start + SLICE));
+            tasks.add(pool.submit(() -> {
+                Buffer buffer = new Buffer(slice.size());
+                buffer.generate(generator, slice);
+                return buffer;
+            }));
+        }
+
+        List<Buffer> slices = new ArrayList<>(tasks.size());
+        int items = 0;
+        for (ForkJoinTask<Buffer> task : tasks) {
+            Buffer slice = task.join();
+            slices.add(slice);
+            items += slice.size;
+        }
+
+        // Slices are appended in order, so the result is laid out exactly as if it were generated sequentially, and
+        // it's sized to fit every item, so it's never grown and can be handed to the batch without being copied
+        Buffer result = new Buffer(contexts.size(), items);
+        for (Buffer slice : slices) {
+            result.append(slice);
+        }
+        return result.batch();
+    }
+
+    /**
+     * A growable buffer that generated items are appended to, with one offset recorded per context.
+     */
+    private static final class Buffer implements Consumer<ItemStack> {
+
+        private @NotNull ItemStack @NotNull [] items;
+        private int size;
+
+        private final int @NotNull [] offsets;
+        private int contexts;
+
+        Buffer(int contexts) {
+            this(contexts, 16);
+        }
+
+        Buffer(int contexts, int capacity) {
+            this.items = new ItemStack[capacity];
+            this.offsets = new int[contexts + 1];
+        }
+
+        void generate(@NotNull LootGenerator generator, @NotNull List<LootContext> contexts) {
+            for (LootContext context : contexts) {
+                generator.generate(context, this);
+                offsets[++this.contexts] = size;
+            }
+        }
+
+        @Override
+        public void accept(@NotNull ItemStack item) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = item;
+        }
+
+        void append(@NotNull Buffer other) {
+            if (size + other.size > items.length) {
+                items = Arrays.copyOf(items, Math.max(items.length * 2, size + other.size));
+            }
+            System.arraycopy(other.items, 0, items, size, other.size);
+
+            for (int i = 1; i <= other.contexts; i++) {
+                offsets[contexts + i] = size + other.offsets[i];
+            }
+            contexts += other.contexts;
+            size += other.size;
+        }
+
+        @NotNull LootBatch batch() {
+            // The array is only trimmed if it has room left, as a full one can be handed over directly
+            return new LootBatch(size == items.length ? items : Arrays.copyOf(items, size), offsets);
+        }
+    }
+
+}
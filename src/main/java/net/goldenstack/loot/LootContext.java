@@ -11,15 +11,20 @@ import net.minestom.server.item.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Stores a dynamic amount of information that may be relevant during the generation of loot.
  */
-public sealed interface LootContext permits LootContextImpl {
+public sealed interface LootContext permits LootContextImpl, BuilderContext, SequencedContext {
 
     @NotNull LootContext.Key<Random> RANDOM = LootContext.key("minecraft:random");
     @NotNull LootContext.Key<Float> EXPLOSION_RADIUS = LootContext.key("minecraft:explosion_radius");
@@ -46,6 +51,25 @@ public sealed interface LootContext permits LootContextImpl {
         return LootContextImpl.from(vanilla, data);
     }
 
+    /**
+     * Creates a reusable builder for contexts. See {@link Builder} for how contexts created by it may be used.
+     * @param vanilla the vanilla interface of the created contexts
+     * @return the new builder
+     */
+    static @NotNull Builder builder(@NotNull VanillaInterface vanilla) {
+        return new Builder(vanilla, false);
+    }
+
+    /**
+     * Creates a reusable builder for contexts that detects contexts being used after the builder was reset. Checked
+     * builders allocate one small object per {@link Builder#context()} call, so they're intended for debugging.
+     * @param vanilla the vanilla interface of the created contexts
+     * @return the new builder
+     */
+    static @NotNull Builder checkedBuilder(@NotNull VanillaInterface vanilla) {
+        return new Builder(vanilla, true);
+    }
+
     /**
      * Creates a key from the provided key.
      */
@@ -54,12 +78,152 @@ public sealed interface LootContext permits LootContextImpl {
     }
 
     /**
-     * Represents a key that stores information in a loot context.
+     * Creates a slot for a value derived from contexts. Each slot is given a dense ordinal, so slots should be created
+     * once and kept in constants.
+     * @param function the function that computes the value from a context
+     * @return the new slot
+     * @param <T> the type of the derived value
+     */
+    static <T> @NotNull Slot<T> slot(@NotNull Function<@NotNull LootContext, @Nullable T> function) {
+        return new Slot<>(function, LootContextImpl.SLOTS.getAndIncrement());
+    }
+
+    /**
+     * A value derived from contexts, such as an entity's serialized NBT, that's expensive enough to only be computed
+     * once per generation. Contexts store derived values in an array indexed by the slot's ordinal, so looking one up
+     * doesn't allocate.
+     * @see LootContext#derive(Slot)
+     * @param <T> the type of the derived value
+     */
+    final class Slot<T> {
+
+        private final @NotNull Function<@NotNull LootContext, @Nullable T> function;
+        private final int ordinal;
+
+        private Slot(@NotNull Function<@NotNull LootContext, @Nullable T> function, int ordinal) {
+            this.function = function;
+            this.ordinal = ordinal;
+        }
+
+        /**
+         * Returns the function that computes this slot's value.
+         */
+        public @NotNull Function<@NotNull LootContext, @Nullable T> function() {
+            return function;
+        }
+
+        /**
+         * Returns the ordinal of this slot, unique to it for the lifetime of the JVM.
+         */
+        public int ordinal() {
+            return ordinal;
+        }
+    }
+
+    /**
+     * Represents a key that stores information in a loot context.<br>
+     * Each distinct ID is given a dense ordinal the first time a key with it is created, so that contexts can store
+     * their values in an array indexed by the ordinal instead of a map.
      * @param id the string id of the key
+     * @param ordinal the ordinal of the id, unique to it for the lifetime of the JVM
      * @param <T> the type parameter of the key
      */
     @SuppressWarnings("unused")
-    record Key<T>(@NotNull String id) {}
+    record Key<T>(@NotNull String id, int ordinal) {
+
+        public Key {
+            if (ordinal != LootContextImpl.ordinal(id)) {
+                throw new IllegalArgumentException("Ordinal " + ordinal + " does not belong to key '" + id + "'");
+            }
+        }
+
+        public Key(@NotNull String id) {
+            this(id, LootContextImpl.ordinal(id));
+        }
+    }
+
+    /**
+     * A mutable, reusable source of loot contexts, allowing the same storage to be refilled for each generation
+     * instead of allocating a map and a context every time. Builders are not thread-safe; a builder is usually kept
+     * per thread (e.g. in a {@link ThreadLocal}).<br>
+     * Contexts returned by {@link #context()} are views of this builder. A view is only valid until the builder is
+     * next {@link #reset() reset}, and it sees any values set after it was created. It must not be kept past the
+     * generation it was created for, or handed to another thread; use {@link #build()} for an independent,
+     * immutable context instead. Builders created with {@link LootContext#checkedBuilder(VanillaInterface)} throw an
+     * {@link IllegalStateException} when a view is used after a reset.
+     */
+    final class Builder {
+
+        private final @NotNull VanillaInterface vanilla;
+        private final boolean checked;
+
+        @Nullable Object @NotNull [] values = new Object[0];
+        final @NotNull DerivedValues derived = new DerivedValues();
+        int epoch;
+
+        private @Nullable BuilderContext view;
+
+        private Builder(@NotNull VanillaInterface vanilla, boolean checked) {
+            this.vanilla = vanilla;
+            this.checked = checked;
+        }
+
+        /**
+         * Removes every value from this builder, invalidating every context previously returned by {@link #context()}.
+         * @return this builder
+         */
+        public @NotNull Builder reset() {
+            Arrays.fill(values, null);
+            derived.next();
+            epoch = (epoch + 1) & Integer.MAX_VALUE;
+            if (checked) view = null;
+            return this;
+        }
+
+        /**
+         * Sets the value of the provided key, or removes it if the value is null.
+         * @param key the key to set
+         * @param value the new value of the key
+         * @return this builder
+         * @param <T> the type of the value
+         */
+        public <T> @NotNull Builder with(@NotNull Key<T> key, @Nullable T value) {
+            int ordinal = key.ordinal();
+            if (ordinal >= values.length) {
+                if (value == null) return this;
+                values = Arrays.copyOf(values, ordinal + 1);
+            }
+            values[ordinal] = value;
+            derived.next();
+            return this;
+        }
+
+        /**
+         * Returns a view of this builder that is valid until the next {@link #reset()}. Unchecked builders always
+         * return the same instance.
+         * @return the context view
+         */
+        public @NotNull LootContext context() {
+            BuilderContext view = this.view;
+            if (view == null) {
+                view = this.view = new BuilderContext(this, checked ? epoch : -1);
+            }
+            return view;
+        }
+
+        /**
+         * Creates an immutable context containing this builder's current values, which remains valid after this
+         * builder is reset.
+         * @return the new context
+         */
+        public @NotNull LootContext build() {
+            return LootContextImpl.of(vanilla, values.clone());
+        }
+
+        @NotNull VanillaInterface vanilla() {
+            return vanilla;
+        }
+    }
 
     /**
      * Returns whether or not this context has the provided key.
@@ -83,7 +247,10 @@ public sealed interface LootContext permits LootContextImpl {
      * @return the optional value
      * @param <T> the type of object desired
      */
-    <T> @NotNull T get(@NotNull Key<T> key, @NotNull T defaultValue);
+    default <T> @NotNull T get(@NotNull Key<T> key, @NotNull T defaultValue) {
+        T get = get(key);
+        return get != null ? get : defaultValue;
+    }
 
     /**
      * Gets the object associated with the provided key, throwing an exception if not.
@@ -91,7 +258,26 @@ public sealed interface LootContext permits LootContextImpl {
      * @return the object associated with the provided key
      * @param <T> the type of object desired
      */
-    <T> @NotNull T require(@NotNull Key<T> key);
+    default <T> @NotNull T require(@NotNull Key<T> key) {
+        T get = get(key);
+        if (get != null) {
+            return get;
+        }
+
+        throw new NoSuchElementException("No value for key '" + key.id() + "'");
+    }
+
+    /**
+     * Returns the value of the provided slot for this context, computing it only the first time it's requested during
+     * the current generation. This lets values that several nodes need, such as serialized entities, enchantment
+     * levels, and scores, be computed at most once per generation.<br>
+     * Each generation of a table starts with no derived values, so a context may be reused for any number of
+     * generations. Views of a {@link Builder} also forget their derived values when it's reset or changed.
+     * @param slot the slot of the derived value
+     * @return the derived value
+     * @param <T> the type of the derived value
+     */
+    <T> @Nullable T derive(@NotNull Slot<T> slot);
 
     /**
      * Returns this context's vanilla interface. This is not part of normal Minecraft loot contexts, but it's required
@@ -101,45 +287,284 @@ public sealed interface LootContext permits LootContextImpl {
 
 }
 
-record LootContextImpl(@NotNull VanillaInterface vanilla, @NotNull Map<String, Object> data) implements LootContext {
+final class LootContextImpl implements LootContext {
+
+    private static final @NotNull Object[] EMPTY = new Object[0];
+
+    private static final @NotNull Map<String, Integer> ORDINALS = new ConcurrentHashMap<>();
+
+    static final @NotNull AtomicInteger SLOTS = new AtomicInteger();
+
+    /**
+     * Returns the ordinal of the provided key ID, assigning the next unused one if it doesn't have one yet.
+     */
+    static int ordinal(@NotNull String id) {
+        Integer ordinal = ORDINALS.get(id);
+        if (ordinal != null) return ordinal;
 
-    LootContextImpl {
-        data = Map.copyOf(data);
+        // Assignments are serialized so that no two IDs can be given the same ordinal
+        synchronized (ORDINALS) {
+            return ORDINALS.computeIfAbsent(id, k -> ORDINALS.size());
+        }
+    }
+
+    private final @NotNull VanillaInterface vanilla;
+
+    // Indexed by key ordinal; a value is present if and only if its slot is non-null
+    private final @Nullable Object @NotNull [] values;
+
+    // Created on first use, as most contexts never derive anything
+    private volatile @Nullable DerivedValues derived;
+
+    private LootContextImpl(@NotNull VanillaInterface vanilla, @Nullable Object @NotNull [] values) {
+        this.vanilla = vanilla;
+        this.values = values;
     }
 
     static @NotNull LootContext from(@NotNull VanillaInterface vanilla, @NotNull Map<Key<?>, Object> data) {
-        Map<String, Object> mapped = new HashMap<>();
+        int length = 0;
+        for (Key<?> key : data.keySet()) {
+            length = Math.max(length, key.ordinal() + 1);
+        }
+
+        Object[] values = length == 0 ? EMPTY : new Object[length];
         for (Map.Entry<Key<?>, Object> entry : data.entrySet()) {
-            mapped.put(entry.getKey().id(), entry.getValue());
+            values[entry.getKey().ordinal()] = Objects.requireNonNull(entry.getValue(), "value");
         }
 
-        return new LootContextImpl(vanilla, mapped);
+        return new LootContextImpl(vanilla, values);
+    }
+
+    static @NotNull LootContext of(@NotNull VanillaInterface vanilla, @Nullable Object @NotNull [] values) {
+        return new LootContextImpl(vanilla, values);
+    }
+
+    /**
+     * Returns an immutable copy of the provided context with the value of one key replaced, or removed if it's null.
+     * Derived values are not copied.
+     */
+    static <T> @NotNull LootContext with(@NotNull LootContext context, @NotNull Key<T> key, @Nullable T value) {
+        Object[] values = switch (context) {
+            case LootContextImpl impl -> impl.values;
+            case BuilderContext view -> view.values();
+            case SequencedContext view -> ((LootContextImpl) with(view.context(), RANDOM, view.random())).values;
+        };
+
+        int ordinal = key.ordinal();
+        Object[] copy = Arrays.copyOf(values, Math.max(values.length, ordinal + 1));
+        copy[ordinal] = value;
+
+        return new LootContextImpl(context.vanilla(), copy);
+    }
+
+    @Override
+    public @NotNull VanillaInterface vanilla() {
+        return vanilla;
     }
 
     @Override
     public boolean has(@NotNull Key<?> key) {
-        return data.containsKey(key.id());
+        int ordinal = key.ordinal();
+        return ordinal < values.length && values[ordinal] != null;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T> @Nullable T get(@NotNull Key<T> key) {
-        return (T) data.get(key.id());
+        int ordinal = key.ordinal();
+        return ordinal < values.length ? (T) values[ordinal] : null;
     }
 
     @Override
-    public <T> @NotNull T get(@NotNull Key<T> key, @NotNull T defaultValue) {
-        T get = get(key);
-        return get != null ? get : defaultValue;
+    public <T> @Nullable T derive(@NotNull Slot<T> slot) {
+        DerivedValues derived = this.derived;
+        if (derived == null) {
+            synchronized (this) {
+                derived = this.derived;
+                if (derived == null) {
+                    derived = this.derived = new DerivedValues();
+                }
+            }
+        }
+        return derived.get(slot, this);
+    }
+
+    /**
+     * Starts a new generation with the provided context, so that values derived during a previous one are recomputed.
+     */
+    static void startGeneration(@NotNull LootContext context) {
+        switch (context) {
+            case LootContextImpl impl -> {
+                DerivedValues derived = impl.derived;
+                if (derived != null) derived.next();
+            }
+            case BuilderContext view -> view.derived().next();
+            case SequencedContext view -> startGeneration(view.context());
+        }
     }
 
     @Override
-    public <T> @NotNull T require(@NotNull Key<T> key) {
-        T get = get(key);
-        if (get != null) {
-            return get;
+    public String toString() {
+        return describe(values);
+    }
+
+    static @NotNull String describe(@Nullable Object @NotNull [] values) {
+        StringJoiner joiner = new StringJoiner(", ", "LootContext[", "]");
+        ORDINALS.forEach((id, ordinal) -> {
+            if (ordinal < values.length && values[ordinal] != null) {
+                joiner.add(id + "=" + values[ordinal]);
+            }
+        });
+        return joiner.toString();
+    }
+}
+
+/**
+ * A view of a {@link LootContext.Builder}'s current values.
+ */
+final class BuilderContext implements LootContext {
+
+    private final @NotNull LootContext.Builder owner;
+
+    // The epoch of the owner this view belongs to, or -1 if the owner is unchecked
+    private final int epoch;
+
+    BuilderContext(@NotNull LootContext.Builder owner, int epoch) {
+        this.owner = owner;
+        this.epoch = epoch;
+    }
+
+    @Nullable Object @NotNull [] values() {
+        if (epoch != -1 && epoch != owner.epoch) {
+            throw new IllegalStateException("Loot context was used after its builder was reset");
         }
+        return owner.values;
+    }
+
+    @Override
+    public @NotNull VanillaInterface vanilla() {
+        values();
+        return owner.vanilla();
+    }
+
+    @Override
+    public boolean has(@NotNull Key<?> key) {
+        Object[] values = values();
+        int ordinal = key.ordinal();
+        return ordinal < values.length && values[ordinal] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> @Nullable T get(@NotNull Key<T> key) {
+        Object[] values = values();
+        int ordinal = key.ordinal();
+        return ordinal < values.length ? (T) values[ordinal] : null;
+    }
+
+    @Override
+    public <T> @Nullable T derive(@NotNull Slot<T> slot) {
+        return derived().get(slot, this);
+    }
+
+    @NotNull DerivedValues derived() {
+        values();
+        return owner.derived;
+    }
+
+    @Override
+    public String toString() {
+        return LootContextImpl.describe(values());
+    }
+}
 
-        throw new NoSuchElementException("No value for key '" + key + "'");
+/**
+ * A view of a context that has no {@link LootContext#RANDOM} of its own, with the random of a table's random sequence.
+ * Every other value, and every derived value, is read from the underlying context, so applying a sequence neither
+ * copies the context nor loses what it has already derived.
+ * @see RandomSequences
+ */
+final class SequencedContext implements LootContext {
+
+    private final @NotNull LootContext context;
+    private final @NotNull Random random;
+
+    SequencedContext(@NotNull LootContext context, @NotNull Random random) {
+        this.context = context;
+        this.random = random;
+    }
+
+    @NotNull LootContext context() {
+        return context;
+    }
+
+    @NotNull Random random() {
+        return random;
+    }
+
+    @Override
+    public @NotNull VanillaInterface vanilla() {
+        return context.vanilla();
+    }
+
+    @Override
+    public boolean has(@NotNull Key<?> key) {
+        return key.ordinal() == RANDOM.ordinal() || context.has(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> @Nullable T get(@NotNull Key<T> key) {
+        return key.ordinal() == RANDOM.ordinal() ? (T) random : context.get(key);
+    }
+
+    @Override
+    public <T> @Nullable T derive(@NotNull Slot<T> slot) {
+        // Derived values never depend on the random, so they're shared with the underlying context
+        return context.derive(slot);
+    }
+
+    @Override
+    public String toString() {
+        return LootContextImpl.with(context, RANDOM, random).toString();
+    }
+}
+
+/**
+ * The values derived from a context, indexed by slot ordinal. A value is only reused within the generation it was
+ * computed in.<br>
+ * This is not synchronized. If several threads share a context, a value may be computed more than once, but each
+ * thread still sees a value that was computed from the context.
+ */
+final class DerivedValues {
+
+    private record Value(@Nullable Object value, int generation) {}
+
+    private @Nullable Object @NotNull [] values = new Object[0];
+    private int generation;
+
+    void next() {
+        generation++;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> @Nullable T get(@NotNull LootContext.Slot<T> slot, @NotNull LootContext context) {
+        int ordinal = slot.ordinal();
+        int generation = this.generation;
+
+        Object[] values = this.values;
+        if (ordinal < values.length && values[ordinal] instanceof Value value && value.generation() == generation) {
+            return (T) value.value();
+        }
+
+        // Computing the value may derive others, so the array is read again afterwards
+        T computed = slot.function().apply(context);
+
+        values = this.values;
+        if (ordinal >= values.length) {
+            values = this.values = Arrays.copyOf(values, Math.max(ordinal + 1, LootContextImpl.SLOTS.get()));
+        }
+        values[ordinal] = new Value(computed, generation);
+        return computed;
     }
 }
@@ -13,6 +13,9 @@ import org.jetbrains.annotations.Range;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * An entry in a loot table that can generate a list of {@link Choice choices} that each have their own loot and weight.
@@ -75,6 +78,9 @@ public interface LootEntry {
 
             @Override
             default @Range(from = 1L, to = Long.MAX_VALUE) long getWeight(@NotNull LootContext context) {
+                // Avoid looking up (and boxing a default for) the luck when it can't affect the weight
+                if (quality() == 0) return Math.max(1, weight());
+
                 return Math.max(1, (long) Math.floor(weight() + quality() * context.get(LootContext.LUCK, 0d)));
             }
 
@@ -181,9 +187,17 @@ public interface LootEntry {
                 Item::new
         );
 
+        // Item stacks are immutable, so the plain stack of each material is created once and shared
+        private static final @NotNull Map<Material, ItemStack> STACKS = new ConcurrentHashMap<>();
+
         @Override
         public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-            return List.of(LootFunction.apply(functions, ItemStack.of(name), context));
+            return List.of(LootFunction.apply(functions, STACKS.computeIfAbsent(name, ItemStack::of), context));
+        }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+            sink.accept(LootFunction.apply(functions, STACKS.computeIfAbsent(name, ItemStack::of), context));
         }
     }
 
@@ -216,6 +230,22 @@ public interface LootEntry {
                 default -> List.of();
             };
         }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+            Block block = context.get(LootContext.BLOCK_STATE);
+            if (block == null) return;
+
+            switch (name.asString()) {
+                case "minecraft:sherds" -> {
+                    for (Material material : block.getTag(VanillaInterface.DECORATED_POT_SHERDS)) {
+                        sink.accept(ItemStack.of(material));
+                    }
+                }
+                case "minecraft:contents" -> block.getTag(VanillaInterface.CONTAINER_ITEMS).forEach(sink);
+                default -> {}
+            }
+        }
     }
 
     record Empty(@NotNull List<LootPredicate> predicates, @NotNull List<LootFunction> functions,
@@ -233,6 +263,9 @@ public interface LootEntry {
         public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
             return List.of();
         }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {}
     }
 
     record LootTable(@NotNull List<LootPredicate> predicates, @NotNull List<LootFunction> functions,
@@ -252,7 +285,40 @@ public interface LootEntry {
             var table = context.vanilla().tableRegistry(value);
             if (table == null) return List.of();
 
-            return LootFunction.apply(functions, table.generate(context), context);
+            List<ItemStack> items = new ArrayList<>();
+            table.generateNested(context, items::add);
+            return LootFunction.apply(functions, items, context);
+        }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+            var table = context.vanilla().tableRegistry(value);
+            if (table == null) return;
+
+            table.generateNested(context, LootFunction.apply(functions, sink, context));
+        }
+    }
+
+    /**
+     * A {@link LootTable} entry whose table has already been resolved, so generating it doesn't need to look the
+     * table up in the {@link VanillaInterface#tableRegistry(NamespaceID) table registry}.<br>
+     * These are created by {@link TableLinker} and are not part of the JSON format, so they cannot be serialized.
+     * @param value the ID of the table
+     * @param table the resolved table
+     */
+    record LinkedTable(@NotNull List<LootPredicate> predicates, @NotNull List<LootFunction> functions,
+                       long weight, long quality, @NotNull NamespaceID value, @NotNull net.goldenstack.loot.LootTable table) implements Choice.Single {
+
+        @Override
+        public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
+            List<ItemStack> items = new ArrayList<>();
+            table.generateNested(context, items::add);
+            return LootFunction.apply(functions, items, context);
+        }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+            table.generateNested(context, LootFunction.apply(functions, sink, context));
         }
     }
 
@@ -269,6 +335,75 @@ public interface LootEntry {
                 Tag::new
         );
 
+        /**
+         * The items of each tag, keyed by the tag's name, so this only grows with the number of tags and not with the
+         * number of entries ever loaded.
+         */
+        private static final @NotNull Map<NamespaceID, List<ItemStack>> ITEMS = new ConcurrentHashMap<>();
+
+        /**
+         * The choices of expanded entries, keyed by everything they depend on. Entries that only differ in their
+         * conditions or functions share the same choices, as do the entries of reloaded tables.
+         */
+        private static final @NotNull Map<ExpansionKey, List<Choice>> CHOICES = new ConcurrentHashMap<>();
+
+        private record ExpansionKey(@NotNull NamespaceID tag, long weight, long quality) {}
+
+        /**
+         * A single item of an expanded tag entry, with the weight and quality of the entry.
+         */
+        private record Expanded(@NotNull ItemStack item, long weight, long quality) implements Choice.Standard {
+            @Override
+            public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
+                return List.of(item);
+            }
+
+            @Override
+            public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+                sink.accept(item);
+            }
+        }
+
+        /**
+         * Clears the resolved items of every tag, so that they are resolved again from the tag manager the next time
+         * they are used. This should be called whenever tags are reloaded.
+         */
+        public static void invalidateExpansions() {
+            ITEMS.clear();
+            CHOICES.clear();
+        }
+
+        private @NotNull List<ItemStack> items() {
+            List<ItemStack> items = ITEMS.get(name.getName());
+            return items != null ? items : ITEMS.computeIfAbsent(name.getName(), id -> resolve(name));
+        }
+
+        private static @NotNull List<ItemStack> resolve(@NotNull net.minestom.server.gamedata.tags.Tag tag) {
+            List<ItemStack> items = new ArrayList<>();
+            for (var key : tag.getValues()) {
+                Material material = Material.fromNamespaceId(key);
+                if (material == null) continue;
+
+                // ItemStacks are immutable, so the base item can be shared
+                items.add(ItemStack.of(material));
+            }
+            return List.copyOf(items);
+        }
+
+        private @NotNull List<Choice> choices() {
+            ExpansionKey key = new ExpansionKey(name.getName(), weight, quality);
+            List<Choice> choices = CHOICES.get(key);
+            if (choices != null) return choices;
+
+            return CHOICES.computeIfAbsent(key, k -> {
+                List<Choice> created = new ArrayList<>();
+                for (ItemStack item : items()) {
+                    created.add(new Expanded(item, weight, quality));
+                }
+                return List.copyOf(created);
+            });
+        }
+
         @Override
         public @NotNull List<Choice> requestChoices(@NotNull LootContext context) {
             if (!LootPredicate.all(predicates, context)) {
@@ -277,38 +412,25 @@ public interface LootEntry {
                 return List.of(this);
             }
 
-            List<Choice> choices = new ArrayList<>();
-            for (var key : name.getValues()) {
-                Material material = Material.fromNamespaceId(key);
-                if (material == null) continue;
-                choices.add(new Choice() {
-                    @Override
-                    public @Range(from = 1L, to = Long.MAX_VALUE) long getWeight(@NotNull LootContext context) {
-                        return Tag.this.getWeight(context);
-                    }
-
-                    @Override
-                    public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-                        return List.of(ItemStack.of(material));
-                    }
-
-                });
-            }
-            return choices;
+            return choices();
         }
 
         @Override
         public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
             List<ItemStack> items = new ArrayList<>();
-            for (var key : name.getValues()) {
-                Material material = Material.fromNamespaceId(key);
-                if (material == null) continue;
-
-                items.add(LootFunction.apply(functions, ItemStack.of(material), context));
+            for (ItemStack item : items()) {
+                items.add(LootFunction.apply(functions, item, context));
             }
 
             return items;
         }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+            for (ItemStack item : items()) {
+                sink.accept(LootFunction.apply(functions, item, context));
+            }
+        }
     }
 
 
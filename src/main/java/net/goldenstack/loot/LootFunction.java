@@ -36,6 +36,7 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -107,6 +108,8 @@ public interface LootFunction {
      * @return the modified item
      */
     static @NotNull ItemStack apply(@NotNull Collection<LootFunction> functions, @NotNull ItemStack item, @NotNull LootContext context) {
+        if (functions.isEmpty()) return item;
+
         for (LootFunction function : functions) {
             item = function.apply(item, context);
         }
@@ -128,6 +131,20 @@ public interface LootFunction {
         return newItems;
     }
 
+    /**
+     * Returns a consumer that applies each function to each item it receives consecutively before passing it to the
+     * provided sink. If there are no functions, the sink itself is returned.
+     * @param functions the functions to apply
+     * @param sink the consumer of the modified items
+     * @param context the context to use
+     * @return the consumer of unmodified items
+     */
+    static @NotNull Consumer<ItemStack> apply(@NotNull Collection<LootFunction> functions, @NotNull Consumer<ItemStack> sink, @NotNull LootContext context) {
+        if (functions.isEmpty()) return sink;
+
+        return item -> sink.accept(LootFunction.apply(functions, item, context));
+    }
+
     record Sequence(@NotNull List<LootFunction> functions) implements LootFunction {
 
         public static final @NotNull BinaryTagSerializer<Sequence> SERIALIZER = Template.template(
@@ -194,20 +211,9 @@ public interface LootFunction {
             Float radius = context.get(LootContext.EXPLOSION_RADIUS);
             if (radius == null) return input;
 
-            Random random = context.require(LootContext.RANDOM);
-
             float chance = 1 / radius;
-            int trials = input.amount();
-
-            int newAmount = 0;
-
-            for (int i = 0; i < trials; i++) {
-                if (random.nextFloat() <= chance) {
-                    newAmount++;
-                }
-            }
 
-            return input.withAmount(newAmount);
+            return input.withAmount(BinomialSampler.sample(context.require(LootContext.RANDOM), input.amount(), chance));
         }
     }
 
@@ -229,6 +235,23 @@ public interface LootFunction {
         }
     }
 
+    /**
+     * A {@link Reference} whose function has already been resolved, so applying it doesn't need to look the function
+     * up in the {@link VanillaInterface#functionRegistry(NamespaceID) function registry}.<br>
+     * These are created by {@link TableLinker} and are not part of the JSON format, so they cannot be serialized.
+     * @param name the ID of the function
+     * @param function the resolved function
+     */
+    record LinkedReference(@NotNull List<LootPredicate> predicates, @NotNull NamespaceID name, @NotNull LootFunction function) implements LootFunction {
+
+        @Override
+        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return input;
+
+            return function.apply(input, context);
+        }
+    }
+
     record ApplyBonus(@NotNull List<LootPredicate> predicates, @NotNull DynamicRegistry.Key<Enchantment> enchantment, @NotNull Formula formula) implements LootFunction {
 
         private static final @NotNull BinaryTagSerializer<List<LootPredicate>> PREDICATES = Serial.lazy(() -> LootPredicate.SERIALIZER).list().optional(List.of());
@@ -260,7 +283,7 @@ public interface LootFunction {
                 if (!(raw instanceof CompoundBinaryTag tag)) throw new IllegalArgumentException("Expected a compound tag");
 
                 List<LootPredicate> predicates = PREDICATES.read(context, tag.get("conditions"));
-                DynamicRegistry.Key<Enchantment> enchantment = KEY.read(context, tag.get("enchantments"));
+                DynamicRegistry.Key<Enchantment> enchantment = KEY.read(context, tag.get("enchantment"));
 
                 String type = BinaryTagSerializer.STRING.read(context, tag.get("formula"));
                 BinaryTag parameters = tag.get("parameters");
@@ -317,13 +340,7 @@ public interface LootFunction {
 
                 @Override
                 public int calculate(@NotNull Random random, int count, int level) {
-                    for (int i = 0; i < extra + level; i++) {
-                        if (random.nextFloat() < probability) {
-                            count++;
-                        }
-                    }
-
-                    return count;
+                    return count + BinomialSampler.sample(random, extra + level, probability);
                 }
             }
 
@@ -334,7 +351,7 @@ public interface LootFunction {
             ItemStack tool = context.get(LootContext.TOOL);
             if (tool == null) return input;
 
-            int level = EnchantmentUtils.level(tool, enchantment);
+            int level = EnchantmentUtils.level(context, LootContext.TOOL, enchantment);
             int newCount = formula.calculate(context.require(LootContext.RANDOM), input.amount(), level);
 
             return input.withAmount(newCount);
@@ -693,8 +710,7 @@ public interface LootFunction {
         public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
             if (!LootPredicate.all(predicates, context)) return input;
 
-            Entity attacker = context.get(LootContext.ATTACKING_ENTITY);
-            int level = EnchantmentUtils.level(attacker, enchantment);
+            int level = EnchantmentUtils.level(context, LootContext.ATTACKING_ENTITY, enchantment);
 
             if (level == 0) return input;
 
@@ -1362,7 +1378,7 @@ public interface LootFunction {
 
             for (LootEntry entry : entries) {
                 for (LootEntry.Choice choice : entry.requestChoices(context)) {
-                    contents.addAll(choice.generate(context));
+                    choice.generate(context, contents);
                 }
             }
 
@@ -4,8 +4,13 @@ import net.minestom.server.coordinate.Point;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.item.ItemStack;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * Something that can generate loot.
@@ -14,16 +19,155 @@ public interface LootGenerator {
 
     @NotNull List<ItemStack> generate(@NotNull LootContext context);
 
-    default void blockDrop(@NotNull LootContext context, @NotNull Instance instance, @NotNull Point block) {
+    /**
+     * Generates loot, passing each item to the provided sink as soon as it's generated, without building any
+     * intermediate lists. Items are passed in the same order as they would appear in {@link #generate(LootContext)}.
+     * @param context the context to generate loot with
+     * @param sink the consumer of the generated items
+     */
+    default void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
         for (ItemStack item : generate(context)) {
-            Trove.blockDrop(instance, item, block);
+            sink.accept(item);
         }
     }
 
+    /**
+     * Generates loot, appending it to the provided list instead of returning a new one. The list may already contain
+     * items, which are left untouched, so a single list can be cleared and reused for any number of generations.
+     * @param context the context to generate loot with
+     * @param output the list to add the generated items to
+     */
+    default void generate(@NotNull LootContext context, @NotNull List<ItemStack> output) {
+        generate(context, output::add);
+    }
+
+    /**
+     * Generates loot for each of the provided contexts, storing every item in a single flat buffer instead of
+     * allocating a list per context.
+     * @param contexts the contexts to generate loot with
+     * @return the loot generated for each context, in the same order as the contexts
+     */
+    default @NotNull LootBatch generateBatch(@NotNull List<LootContext> contexts) {
+        return generateBatch(contexts, null);
+    }
+
+    /**
+     * Generates loot for each of the provided contexts, storing every item in a single flat buffer instead of
+     * allocating a list per context.<br>
+     * If a pool is provided, the contexts are split into slices that are generated in parallel. Each context is still
+     * generated on a single thread, and the result is laid out the same as a sequential batch.<br>
+     * When generating on a pool, every context must have its own {@link LootContext#RANDOM}; contexts without one are
+     * rejected, as they would draw from the world's {@link RandomSequences random sequences}, which aren't safe to use
+     * from several threads. For the loot to be the same as a sequential batch, contexts must not share a random with
+     * each other either: slices run concurrently, so contexts in different slices that share a random interleave their
+     * draws nondeterministically, and may generate different loot on every run. Views of a
+     * {@link LootContext.Builder} must not be generated on a pool, as they can't be handed to other threads.
+     * @param contexts the contexts to generate loot with
+     * @param pool the pool to generate loot on, or null to generate it on the calling thread
+     * @return the loot generated for each context, in the same order as the contexts
+     * @throws IllegalArgumentException if a pool is provided and any context has no random
+     */
+    default @NotNull LootBatch generateBatch(@NotNull List<LootContext> contexts, @Nullable ForkJoinPool pool) {
+        return LootBatch.generate(this, contexts, pool);
+    }
+
+    default void blockDrop(@NotNull LootContext context, @NotNull Instance instance, @NotNull Point block) {
+        generate(context, item -> Trove.blockDrop(instance, item, block));
+    }
+
     default void drop(@NotNull LootContext context, @NotNull Instance instance, @NotNull Point pos) {
-        for (ItemStack item : generate(context)) {
-            Trove.drop(instance, item, pos);
+        generate(context, item -> Trove.drop(instance, item, pos));
+    }
+
+    /**
+     * Generates loot on a new virtual thread.
+     * @param context the context to generate loot with
+     * @return a future completed with the generated loot
+     * @see #generateAsync(LootContext, Executor)
+     */
+    default @NotNull CompletableFuture<List<ItemStack>> generateAsync(@NotNull LootContext context) {
+        return generateAsync(context, Trove.ASYNC);
+    }
+
+    /**
+     * Generates loot on the provided executor, so that expensive tables don't delay the calling thread.<br>
+     * The context is read on the executor while the server keeps ticking, so:
+     * <ul>
+     *     <li>It must be immutable. Views of a {@link LootContext.Builder} are rejected; use
+     *     {@link LootContext.Builder#build()} instead.</li>
+     *     <li>Immutable values, such as the tool and other items, block states, positions, damage types, and
+     *     numbers, are always safe to read.</li>
+     *     <li>It must have a {@link LootContext#RANDOM}, which must not be used by any other thread during
+     *     generation, so each asynchronous generation should have its own. Contexts without one are rejected, as they
+     *     would otherwise draw from {@link RandomSequences}, which are only safe to use on the tick thread.</li>
+     *     <li>Entities and instances (e.g. {@link LootContext#THIS_ENTITY} and {@link LootContext#WORLD}) are read
+     *     without synchronization, so conditions and functions that inspect them, such as entity properties, location
+     *     checks, scores, and copied names, may see their state from any point during generation. Tables that rely on
+     *     exact entity or world state should be generated on the tick thread.</li>
+     *     <li>The context's {@link net.goldenstack.loot.util.VanillaInterface} must be safe to call from any
+     *     thread.</li>
+     * </ul>
+     * @param context the context to generate loot with
+     * @param executor the executor to generate loot on
+     * @return a future completed with the generated loot, or with the exception that generation threw
+     */
+    default @NotNull CompletableFuture<List<ItemStack>> generateAsync(@NotNull LootContext context, @NotNull Executor executor) {
+        if (context instanceof BuilderContext) {
+            throw new IllegalArgumentException("Builder views cannot be generated asynchronously; build the context instead");
+        } else if (!context.has(LootContext.RANDOM)) {
+            throw new IllegalArgumentException("Contexts generated asynchronously must have their own random");
         }
+        return CompletableFuture.supplyAsync(() -> generate(context), executor);
+    }
+
+    /**
+     * Generates loot on a new virtual thread, then drops it at the provided block on the instance's next tick.
+     * @see #blockDropAsync(LootContext, Instance, Point, Executor)
+     */
+    default @NotNull CompletableFuture<List<ItemStack>> blockDropAsync(@NotNull LootContext context, @NotNull Instance instance, @NotNull Point block) {
+        return blockDropAsync(context, instance, block, Trove.ASYNC);
+    }
+
+    /**
+     * Generates loot on the provided executor, then drops it at the provided block. The items are spawned on the
+     * instance's tick via its scheduler, never on the executor. See {@link #generateAsync(LootContext, Executor)} for
+     * which contexts are safe to use.
+     * @param context the context to generate loot with
+     * @param instance the instance to drop the loot in
+     * @param block the block to drop the loot at
+     * @param executor the executor to generate loot on
+     * @return a future completed with the generated loot once it has been spawned, or exceptionally if the instance
+     *         is unregistered before then
+     */
+    default @NotNull CompletableFuture<List<ItemStack>> blockDropAsync(@NotNull LootContext context, @NotNull Instance instance,
+                                                                       @NotNull Point block, @NotNull Executor executor) {
+        return generateAsync(context, executor).thenCompose(items ->
+                Trove.nextTick(instance, items, target -> items.forEach(item -> Trove.blockDrop(target, item, block))));
+    }
+
+    /**
+     * Generates loot on a new virtual thread, then drops it at the provided position on the instance's next tick.
+     * @see #dropAsync(LootContext, Instance, Point, Executor)
+     */
+    default @NotNull CompletableFuture<List<ItemStack>> dropAsync(@NotNull LootContext context, @NotNull Instance instance, @NotNull Point pos) {
+        return dropAsync(context, instance, pos, Trove.ASYNC);
+    }
+
+    /**
+     * Generates loot on the provided executor, then drops it at the provided position. The items are spawned on the
+     * instance's tick via its scheduler, never on the executor. See {@link #generateAsync(LootContext, Executor)} for
+     * which contexts are safe to use.
+     * @param context the context to generate loot with
+     * @param instance the instance to drop the loot in
+     * @param pos the position to drop the loot at
+     * @param executor the executor to generate loot on
+     * @return a future completed with the generated loot once it has been spawned, or exceptionally if the instance
+     *         is unregistered before then
+     */
+    default @NotNull CompletableFuture<List<ItemStack>> dropAsync(@NotNull LootContext context, @NotNull Instance instance,
+                                                                  @NotNull Point pos, @NotNull Executor executor) {
+        return generateAsync(context, executor).thenCompose(items ->
+                Trove.nextTick(instance, items, target -> items.forEach(item -> Trove.drop(target, item, pos))));
     }
 
 }
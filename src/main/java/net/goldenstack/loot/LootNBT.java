@@ -14,7 +14,9 @@ import net.minestom.server.utils.nbt.BinaryTagSerializer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Returns NBT data from the provided context.
@@ -94,11 +96,19 @@ public interface LootNBT {
             }
 
             record Entity(@NotNull RelevantEntity target) implements Target {
+
+                // Serialization is expensive and the result is immutable, so it's shared within a generation
+                private static final @NotNull Map<RelevantEntity, LootContext.Slot<BinaryTag>> SERIALIZED = new EnumMap<>(RelevantEntity.class);
+
+                static {
+                    for (RelevantEntity target : RelevantEntity.values()) {
+                        SERIALIZED.put(target, LootContext.slot(ctx -> ctx.vanilla().serializeEntity(ctx.require(target.key()))));
+                    }
+                }
+
                 @Override
                 public @NotNull BinaryTag getNBT(@NotNull LootContext context) {
-                    var entity = context.require(target.key());
-
-                    return context.vanilla().serializeEntity(entity);
+                    return Objects.requireNonNull(context.derive(SERIALIZED.get(target)));
                 }
 
                 @Override
@@ -1,5 +1,6 @@
 package net.goldenstack.loot;
 
+import net.goldenstack.loot.util.BinomialSampler;
 import net.goldenstack.loot.util.Serial;
 import net.goldenstack.loot.util.Template;
 import net.goldenstack.loot.util.nbt.NBTPath;
@@ -13,7 +14,6 @@ import net.minestom.server.utils.nbt.BinaryTagSerializer;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
-import java.util.Random;
 
 /**
  * Generates numbers based on provided loot contexts.
@@ -49,7 +49,11 @@ public interface LootNumber {
      */
     double getDouble(@NotNull LootContext context);
 
-    record Constant(@NotNull Double value) implements LootNumber {
+    /**
+     * A number that is always the same value. The value is stored as a primitive, so reading it never unboxes.
+     * @param value the value of this number
+     */
+    record Constant(double value) implements LootNumber {
 
         public static final @NotNull BinaryTagSerializer<Constant> SERIALIZER = Template.template(
                 "value", Serial.DOUBLE, Constant::value,
@@ -58,7 +62,7 @@ public interface LootNumber {
 
         @Override
         public int getInt(@NotNull LootContext context) {
-            return value.intValue();
+            return (int) value;
         }
 
         @Override
@@ -98,15 +102,8 @@ public interface LootNumber {
         public int getInt(@NotNull LootContext context) {
             int trials = trials().getInt(context);
             double probability = probability().getDouble(context);
-            Random random = context.require(LootContext.RANDOM);
 
-            int successes = 0;
-            for (int trial = 0; trial < trials; trial++) {
-                if (random.nextDouble() < probability) {
-                    successes++;
-                }
-            }
-            return successes;
+            return BinomialSampler.sample(context.require(LootContext.RANDOM), trials, probability);
         }
 
         @Override
@@ -7,7 +7,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A loot pool.
@@ -33,9 +35,20 @@ public record LootPool(@NotNull LootNumber rolls,
             LootPool::new
     );
 
+    public LootPool {
+        entries = PoolEntries.of(entries);
+    }
+
     @Override
     public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-        if (!(LootPredicate.all(predicates, context))) return List.of();
+        List<ItemStack> items = new ArrayList<>();
+        generate(context, items::add);
+        return items;
+    }
+
+    @Override
+    public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        if (!(LootPredicate.all(predicates, context))) return;
 
         int rolls = this.rolls.getInt(context);
 
@@ -44,55 +57,96 @@ public record LootPool(@NotNull LootNumber rolls,
             rolls += (int) Math.floor(luck * this.bonusRolls.getDouble(context));
         }
 
-        List<ItemStack> items = new ArrayList<>();
+        Consumer<ItemStack> output = LootFunction.apply(functions, sink, context);
 
         for (int i = 0; i < rolls; i++) {
             LootEntry.Choice choice = pickChoice(entries, context);
             if (choice == null) continue;
 
-            items.addAll(choice.generate(context));
+            choice.generate(context, output);
         }
-
-        return LootFunction.apply(functions, items, context);
     }
-    
+
     /**
      * Picks a random choice from the choices generated by the provided entries, weighted with each choice's weight. If
-     * no choices were generated, null is returned.
+     * no choices were generated, null is returned.<br>
+     * If the entries are a static pool's {@link PoolEntries}, the choice is picked from its precomputed alias table.
+     * Otherwise, choices are gathered into per-thread scratch arrays, and single entries are tested directly instead
+     * of requesting a list containing themselves.
      * @param entries the entries to generate choices to choose from
      * @param context the context, to use if needed
      * @return the picked choice, or null if no choices were generated
      */
     static @Nullable LootEntry.Choice pickChoice(@NotNull List<LootEntry> entries, @NotNull LootContext context) {
-        List<LootEntry.Choice> choices = new ArrayList<>();
-        for (LootEntry entry : entries) {
-            choices.addAll(entry.requestChoices(context));
+        if (entries instanceof PoolEntries pool && pool.alias() != null) {
+            return (LootEntry.Choice) pool.get(pool.alias().sample(context.require(LootContext.RANDOM)));
         }
 
-        if (choices.isEmpty()) {
+        Scratch scratch = SCRATCH.get();
+
+        int count = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            LootEntry entry = entries.get(i);
+            if (entry instanceof LootEntry.Choice.Single single && PoolEntries.isBuiltinSingle(single)) {
+                if (LootPredicate.all(single.predicates(), context)) {
+                    count = scratch.add(count, single);
+                }
+            } else {
+                for (LootEntry.Choice choice : entry.requestChoices(context)) {
+                    count = scratch.add(count, choice);
+                }
+            }
+        }
+
+        if (count == 0) {
             return null;
         }
 
+        LootEntry.Choice[] choices = scratch.choices;
+        long[] weightMilestones = scratch.weightMilestones;
+
         long totalWeight = 0;
-        long[] weightMilestones = new long[choices.size()];
-        for (int i = 0; i < choices.size(); i++) {
+        for (int i = 0; i < count; i++) {
             // Prevent the weight of this choice from being less than 1
-            totalWeight += Math.max(1, choices.get(i).getWeight(context));
+            totalWeight += Math.max(1, choices[i].getWeight(context));
 
             weightMilestones[i] = totalWeight;
         }
 
         long value = context.require(LootContext.RANDOM).nextLong(0, totalWeight);
 
-        LootEntry.Choice choice = choices.getLast();
+        LootEntry.Choice choice = choices[count - 1];
 
-        for (int i = 0; i < weightMilestones.length; i++) {
+        for (int i = 0; i < count; i++) {
             if (value < weightMilestones[i]) {
-                choice = choices.get(i);
+                choice = choices[i];
                 break;
             }
         }
 
+        // Don't keep choices reachable from the thread after they've been used
+        Arrays.fill(choices, 0, count, null);
+
         return choice;
     }
+
+    private static final @NotNull ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Reusable arrays for picking choices. Choices are only gathered and picked within a single call to
+     * {@link #pickChoice(List, LootContext)}, which never reenters itself, so one instance per thread is enough.
+     */
+    private static final class Scratch {
+        LootEntry.Choice[] choices = new LootEntry.Choice[16];
+        long[] weightMilestones = new long[16];
+
+        int add(int count, @NotNull LootEntry.Choice choice) {
+            if (count == choices.length) {
+                choices = Arrays.copyOf(choices, count * 2);
+                weightMilestones = Arrays.copyOf(weightMilestones, count * 2);
+            }
+            choices[count] = choice;
+            return count + 1;
+        }
+    }
 }
@@ -64,8 +64,9 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
         if (predicates.isEmpty()) {
             return true;
         }
-        for (var predicate : predicates) {
-            if (!predicate.test(context)) {
+        // Indexed rather than iterated, so that testing predicates during a roll never allocates
+        for (int i = 0; i < predicates.size(); i++) {
+            if (!predicates.get(i).test(context)) {
                 return false;
             }
         }
@@ -214,9 +215,7 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
 
         @Override
         public boolean test(@NotNull LootContext context) {
-            ItemStack tool = context.get(LootContext.TOOL);
-
-            int level = EnchantmentUtils.level(tool, enchantment);
+            int level = EnchantmentUtils.level(context, LootContext.TOOL, enchantment);
 
             float chance = chances.get(Math.min(this.chances.size() - 1, level));
 
@@ -239,6 +238,21 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
         }
     }
 
+    /**
+     * A {@link Reference} whose predicate has already been resolved, so testing it doesn't need to look the predicate
+     * up in the {@link VanillaInterface#predicateRegistry(NamespaceID) predicate registry}.<br>
+     * These are created by {@link TableLinker} and are not part of the JSON format, so they cannot be serialized.
+     * @param name the ID of the predicate
+     * @param predicate the resolved predicate
+     */
+    record LinkedReference(@NotNull NamespaceID name, @NotNull LootPredicate predicate) implements LootPredicate {
+
+        @Override
+        public boolean test(@NotNull LootContext context) {
+            return predicate.test(context);
+        }
+    }
+
     record EnchantmentActiveCheck(boolean active) implements LootPredicate {
 
         public static final @NotNull BinaryTagSerializer<EnchantmentActiveCheck> SERIALIZER = Template.template(
@@ -355,11 +369,10 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
 
         @Override
         public boolean test(@NotNull LootContext context) {
-            Entity entity = context.get(this.entity.key());
-            if (entity == null) return false;
+            if (!context.has(entity.key())) return false;
 
             for (var entry : scores.entrySet()) {
-                Integer score = context.vanilla().score(entity, entry.getKey());
+                Integer score = Scores.score(context, entity, entry.getKey());
                 if (score == null || !entry.getValue().check(context, score)) {
                     return false;
                 }
@@ -380,9 +393,7 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
 
         @Override
         public boolean test(@NotNull LootContext context) {
-            Entity attacker = context.get(LootContext.ATTACKING_ENTITY);
-
-            int level = EnchantmentUtils.level(attacker, enchantment);
+            int level = EnchantmentUtils.level(context, LootContext.ATTACKING_ENTITY, enchantment);
 
             float chance = level > 0 ? enchantedChance.calc(level) : unenchantedChance;
             return context.require(LootContext.RANDOM).nextFloat() < chance;
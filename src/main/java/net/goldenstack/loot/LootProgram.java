@@ -0,0 +1,291 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+
+/**
+ * A loot table lowered into a flat instruction array, evaluated by a single interpreter loop instead of by walking
+ * the table's tree of pools and entries.<br>
+ * Pool conditions become conditional jumps, constant rolls become immediate operands, and item entries are emitted
+ * inline. Anything else (non-constant numbers, other entries, predicates, and functions themselves) is called as an
+ * opaque operation on the original node. Every operation happens in the same order as in
+ * {@link LootTable#generate(LootContext, Consumer)}, so for the same context and random state, a program generates
+ * exactly the same items as the table it was compiled from.<br>
+ * Programs are immutable and may be shared between threads.
+ */
+public final class LootProgram implements LootGenerator {
+
+    // Opcodes. Operands follow each opcode inline; 'k' operands index the constant pool.
+    static final int PUSH_FUNCTIONS = 0; // k: push a function list applied to every item emitted until the next POP
+    static final int POP_FUNCTIONS = 1;
+    static final int TEST = 2;           // k, target: jump to target if the predicate fails
+    static final int ROLLS_CONST = 3;    // n: set the roll register to n
+    static final int ROLLS = 4;          // k: set the roll register to the number's integer value
+    static final int BONUS_ROLLS = 5;    // k: add floor(luck * number) to the roll register if there is luck
+    static final int LOOP = 6;           // target: jump to target if the roll register is used up, else decrement it
+    static final int PICK = 7;           // k, target: pick a choice from the entry list, jumping to target if none
+    static final int GENERATE = 8;       // generate the picked choice
+    static final int JUMP = 9;           // target
+    static final int RETURN = 10;
+
+    private static final String[] NAMES = {
+            "push_functions", "pop_functions", "test", "rolls_const", "rolls", "bonus_rolls",
+            "loop", "pick", "generate", "jump", "return"
+    };
+
+    private static final int[] OPERANDS = {1, 0, 2, 1, 1, 1, 1, 2, 0, 1, 0};
+
+    private final @NotNull LootTable table;
+    private final int @NotNull [] code;
+    private final @NotNull Object @NotNull [] constants;
+    private final int maxDepth;
+
+    private LootProgram(@NotNull LootTable table, int @NotNull [] code, @NotNull Object @NotNull [] constants, int maxDepth) {
+        this.table = table;
+        this.code = code;
+        this.constants = constants;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Compiles the provided table into a program.
+     * @param table the table to compile
+     * @return the compiled program
+     */
+    public static @NotNull LootProgram compile(@NotNull LootTable table) {
+        return new Compiler().compile(table);
+    }
+
+    /**
+     * Returns the table this program was compiled from.
+     */
+    public @NotNull LootTable table() {
+        return table;
+    }
+
+    /**
+     * Returns the number of instructions in this program.
+     */
+    public int instructions() {
+        int count = 0;
+        for (int pc = 0; pc < code.length; pc += 1 + OPERANDS[code[pc]]) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
+        List<ItemStack> items = new ArrayList<>();
+        generate(context, items::add);
+        return items;
+    }
+
+    @Override
+    public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        LootContextImpl.startGeneration(context);
+        new Run(RandomSequences.apply(context, table.randomSequence()), sink, maxDepth).execute(code, constants);
+    }
+
+    /**
+     * The state of a single evaluation of a program. It receives every item generated by opaque choices, so that it
+     * can apply the functions that are currently pushed.
+     */
+    private static final class Run implements Consumer<ItemStack> {
+
+        private final @NotNull LootContext context;
+        private final @NotNull Consumer<ItemStack> sink;
+
+        private final @NotNull List<LootFunction> @NotNull [] functions;
+        private int depth;
+
+        @SuppressWarnings("unchecked")
+        Run(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink, int maxDepth) {
+            this.context = context;
+            this.sink = sink;
+            this.functions = new List[maxDepth];
+        }
+
+        @SuppressWarnings("unchecked")
+        void execute(int @NotNull [] code, @NotNull Object @NotNull [] constants) {
+            int rolls = 0;
+            LootEntry.Choice choice = null;
+
+            int pc = 0;
+            while (true) {
+                switch (code[pc]) {
+                    case PUSH_FUNCTIONS -> {
+                        functions[depth++] = (List<LootFunction>) constants[code[pc + 1]];
+                        pc += 2;
+                    }
+                    case POP_FUNCTIONS -> {
+                        functions[--depth] = null;
+                        pc += 1;
+                    }
+                    case TEST -> pc = ((LootPredicate) constants[code[pc + 1]]).test(context) ? pc + 3 : code[pc + 2];
+                    case ROLLS_CONST -> {
+                        rolls = code[pc + 1];
+                        pc += 2;
+                    }
+                    case ROLLS -> {
+                        rolls = ((LootNumber) constants[code[pc + 1]]).getInt(context);
+                        pc += 2;
+                    }
+                    case BONUS_ROLLS -> {
+                        Double luck = context.get(LootContext.LUCK);
+                        if (luck != null) {
+                            rolls += (int) Math.floor(luck * ((LootNumber) constants[code[pc + 1]]).getDouble(context));
+                        }
+                        pc += 2;
+                    }
+                    case LOOP -> {
+                        if (rolls <= 0) {
+                            pc = code[pc + 1];
+                        } else {
+                            rolls--;
+                            pc += 2;
+                        }
+                    }
+                    case PICK -> {
+                        choice = LootPool.pickChoice((List<LootEntry>) constants[code[pc + 1]], context);
+                        pc = choice == null ? code[pc + 2] : pc + 3;
+                    }
+                    case GENERATE -> {
+                        if (choice instanceof LootEntry.Item item) {
+                            accept(LootFunction.apply(item.functions(), ItemStack.of(item.name()), context));
+                        } else if (choice != null) {
+                            choice.generate(context, this);
+                        }
+                        choice = null;
+                        pc += 1;
+                    }
+                    case JUMP -> pc = code[pc + 1];
+                    case RETURN -> {
+                        return;
+                    }
+                    default -> throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc);
+                }
+            }
+        }
+
+        @Override
+        public void accept(@NotNull ItemStack item) {
+            // Innermost functions first, like the consumer chain built by the tree walker
+            for (int i = depth - 1; i >= 0; i--) {
+                item = LootFunction.apply(functions[i], item, context);
+            }
+            sink.accept(item);
+        }
+    }
+
+    private static final class Compiler {
+
+        private int[] code = new int[64];
+        private int size;
+
+        private final @NotNull List<Object> constants = new ArrayList<>();
+        private final @NotNull Map<Object, Integer> indices = new IdentityHashMap<>();
+
+        private int depth;
+        private int maxDepth;
+
+        @NotNull LootProgram compile(@NotNull LootTable table) {
+            boolean functions = push(table.functions());
+            for (LootPool pool : table.pools()) {
+                pool(pool);
+            }
+            if (functions) pop();
+            emit(RETURN);
+
+            return new LootProgram(table, Arrays.copyOf(code, size), constants.toArray(), maxDepth);
+        }
+
+        private void pool(@NotNull LootPool pool) {
+            List<Integer> exits = new ArrayList<>();
+            for (LootPredicate predicate : pool.predicates()) {
+                emit(TEST, constant(predicate), -1);
+                exits.add(size - 1);
+            }
+
+            if (pool.rolls() instanceof LootNumber.Constant constant) {
+                emit(ROLLS_CONST, (int) constant.value());
+            } else {
+                emit(ROLLS, constant(pool.rolls()));
+            }
+
+            // A constant zero never adds rolls, whatever the luck is
+            if (!(pool.bonusRolls() instanceof LootNumber.Constant constant && constant.value() == 0)) {
+                emit(BONUS_ROLLS, constant(pool.bonusRolls()));
+            }
+
+            boolean functions = push(pool.functions());
+
+            int loop = size;
+            emit(LOOP, -1);
+            int end = size - 1;
+            emit(PICK, constant(pool.entries()), loop);
+            emit(GENERATE);
+            emit(JUMP, loop);
+            code[end] = size;
+
+            if (functions) pop();
+
+            for (int exit : exits) {
+                code[exit] = size;
+            }
+        }
+
+        private boolean push(@NotNull List<LootFunction> functions) {
+            if (functions.isEmpty()) return false;
+
+            emit(PUSH_FUNCTIONS, constant(functions));
+            maxDepth = Math.max(maxDepth, ++depth);
+            return true;
+        }
+
+        private void pop() {
+            emit(POP_FUNCTIONS);
+            depth--;
+        }
+
+        private int constant(@NotNull Object value) {
+            return indices.computeIfAbsent(value, v -> {
+                constants.add(v);
+                return constants.size() - 1;
+            });
+        }
+
+        private void emit(int... instruction) {
+            if (size + instruction.length > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+            }
+            System.arraycopy(instruction, 0, code, size, instruction.length);
+            size += instruction.length;
+        }
+    }
+
+    /**
+     * Returns a human-readable listing of this program's instructions.
+     */
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner("\n", "LootProgram[\n", "\n]");
+        for (int pc = 0; pc < code.length; pc += 1 + OPERANDS[code[pc]]) {
+            StringBuilder line = new StringBuilder().append(String.format("%4d  ", pc)).append(NAMES[code[pc]]);
+            for (int i = 1; i <= OPERANDS[code[pc]]; i++) {
+                line.append(' ').append(code[pc + i]);
+            }
+            joiner.add(line);
+        }
+        return joiner.toString();
+    }
+
+}
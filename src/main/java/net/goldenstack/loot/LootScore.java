@@ -6,6 +6,9 @@ import net.minestom.server.utils.nbt.BinaryTagSerializer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -34,7 +37,7 @@ public interface LootScore extends Function<@NotNull LootContext, Function<@NotN
 
         @Override
         public @NotNull Function<@NotNull String, @Nullable Integer> apply(@NotNull LootContext context) {
-            return objective -> context.vanilla().score(context.require(name.key()), objective);
+            return objective -> Scores.score(context, name, objective);
         }
     }
 
@@ -47,8 +50,59 @@ public interface LootScore extends Function<@NotNull LootContext, Function<@NotN
 
         @Override
         public @NotNull Function<@NotNull String, @Nullable Integer> apply(@NotNull LootContext context) {
-            return objective -> context.vanilla().score(name, objective);
+            return objective -> Scores.score(context, name, objective);
         }
     }
 
 }
+
+/**
+ * The scores of each holder for each objective, as derived values. Scores come from the vanilla interface, which may be
+ * arbitrarily expensive, so each is only looked up once per generation, however many nodes need it.
+ */
+final class Scores {
+
+    private Scores() {}
+
+    private static final @NotNull Map<RelevantEntity, Map<String, LootContext.Slot<Integer>>> ENTITIES = new EnumMap<>(RelevantEntity.class);
+    private static final @NotNull Map<String, Map<String, LootContext.Slot<Integer>>> NAMES = new ConcurrentHashMap<>();
+
+    static {
+        for (RelevantEntity holder : RelevantEntity.values()) {
+            ENTITIES.put(holder, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Returns the score of the provided entity of the context for the provided objective.
+     */
+    static @Nullable Integer score(@NotNull LootContext context, @NotNull RelevantEntity holder, @NotNull String objective) {
+        Map<String, LootContext.Slot<Integer>> slots = ENTITIES.get(holder);
+
+        LootContext.Slot<Integer> slot = slots.get(objective);
+        if (slot == null) {
+            slot = slots.computeIfAbsent(objective, ignored ->
+                    LootContext.slot(ctx -> ctx.vanilla().score(ctx.require(holder.key()), objective)));
+        }
+
+        return context.derive(slot);
+    }
+
+    /**
+     * Returns the score of the provided name for the provided objective.
+     */
+    static @Nullable Integer score(@NotNull LootContext context, @NotNull String holder, @NotNull String objective) {
+        Map<String, LootContext.Slot<Integer>> slots = NAMES.get(holder);
+        if (slots == null) {
+            slots = NAMES.computeIfAbsent(holder, ignored -> new ConcurrentHashMap<>());
+        }
+
+        LootContext.Slot<Integer> slot = slots.get(objective);
+        if (slot == null) {
+            slot = slots.computeIfAbsent(objective, ignored -> LootContext.slot(ctx -> ctx.vanilla().score(holder, objective)));
+        }
+
+        return context.derive(slot);
+    }
+
+}
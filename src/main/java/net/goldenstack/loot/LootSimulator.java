@@ -0,0 +1,295 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Estimates the drop rates of a loot generator by generating loot from it many times and counting the items of each
+ * material.<br>
+ * Runs are split into fixed-size chunks, and each chunk is given its own random stream split from a single seeded
+ * generator, in order. The streams don't depend on which thread runs a chunk, and counts are summed, so a simulation
+ * gives the exact same result for the same seed whether it runs sequentially or on any number of threads. Chunks share
+ * nothing but the generator, so simulations scale with the number of threads.
+ */
+public final class LootSimulator {
+
+    /**
+     * The number of runs per chunk, each of which has its own random stream.
+     */
+    private static final int CHUNK = 4096;
+
+    private static final @NotNull String ALGORITHM = "L64X128MixRandom";
+
+    private LootSimulator() {}
+
+    /**
+     * The result of a simulation.
+     * @param runs the number of times loot was generated
+     * @param materials the distribution of each material that was generated at least once, ordered by material ID
+     */
+    public record Result(long runs, @NotNull Map<Material, Distribution> materials) {
+        public Result {
+            materials = Collections.unmodifiableMap(new LinkedHashMap<>(materials));
+        }
+
+        /**
+         * Returns the distribution of the provided material, which is empty if it was never generated.
+         * @param material the material to get the distribution of
+         * @return the material's distribution
+         */
+        public @NotNull Distribution get(@NotNull Material material) {
+            Distribution distribution = materials.get(material);
+            return distribution != null ? distribution : new Distribution(material, new long[]{runs});
+        }
+    }
+
+    /**
+     * The distribution of how many items of one material were generated per run, counting the total amount of every
+     * stack of that material.
+     * @param material the material that was counted
+     * @param histogram the number of runs that generated exactly {@code i} items at each index {@code i}
+     */
+    public record Distribution(@NotNull Material material, long @NotNull [] histogram) {
+
+        @Override
+        public long @NotNull [] histogram() {
+            return histogram.clone();
+        }
+
+        /**
+         * Returns the number of runs that generated exactly the provided amount of this material.
+         */
+        public long runs(int amount) {
+            return amount >= 0 && amount < histogram.length ? histogram[amount] : 0;
+        }
+
+        /**
+         * Returns the total number of runs.
+         */
+        public long runs() {
+            long runs = 0;
+            for (long count : histogram) runs += count;
+            return runs;
+        }
+
+        /**
+         * Returns the total amount of this material that was generated across every run.
+         */
+        public long total() {
+            long total = 0;
+            for (int i = 1; i < histogram.length; i++) total += i * histogram[i];
+            return total;
+        }
+
+        /**
+         * Returns the average amount of this material generated per run.
+         */
+        public double mean() {
+            return (double) total() / runs();
+        }
+
+        /**
+         * Returns the fraction of runs that generated at least one of this material.
+         */
+        public double chance() {
+            return 1 - (double) runs(0) / runs();
+        }
+
+        /**
+         * Returns the smallest amount that at least the provided fraction of runs generated no more than.
+         * @param fraction the fraction of runs, between 0 and 1
+         * @return the percentile of the amount generated
+         */
+        public int percentile(double fraction) {
+            if (!(fraction >= 0 && fraction <= 1)) throw new IllegalArgumentException("Fraction " + fraction + " is not between 0 and 1");
+
+            double target = fraction * runs();
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= target) return i;
+            }
+            return histogram.length - 1;
+        }
+
+        @Override
+        public String toString() {
+            return "Distribution[material=" + material.name() + ", mean=" + mean() + ", chance=" + chance() + ", histogram=" + Arrays.toString(histogram) + "]";
+        }
+    }
+
+    /**
+     * Generates loot from the provided generator the provided number of times, counting the generated materials.<br>
+     * Each chunk of runs uses a copy of the template with its own {@link LootContext#RANDOM}; any random in the
+     * template is ignored. Every run of a chunk shares the same context, so it's only allocated once per chunk.
+     * @param generator the generator to simulate
+     * @param template the context to generate loot with
+     * @param runs the number of times to generate loot
+     * @param seed the seed of the random streams
+     * @param pool the pool to simulate on, or null to simulate on the calling thread
+     * @return the distribution of every generated material
+     */
+    public static @NotNull Result simulate(@NotNull LootGenerator generator, @NotNull LootContext template,
+                                           long runs, long seed, @Nullable ForkJoinPool pool) {
+        if (runs < 0) throw new IllegalArgumentException("Cannot simulate " + runs + " runs");
+
+        long chunkCount = (runs + CHUNK - 1) / CHUNK;
+        if (chunkCount > Integer.MAX_VALUE) throw new IllegalArgumentException("Cannot simulate " + runs + " runs");
+
+        // Builder views can't be handed to other threads, so the template is copied here
+        LootContext base = LootContextImpl.with(template, LootContext.RANDOM, null);
+
+        // Split in order on this thread, so that each chunk always gets the same stream
+        SplittableGenerator root = RandomGeneratorFactory.<SplittableGenerator>of(ALGORITHM).create(seed);
+        SplittableGenerator[] streams = root.splits(chunkCount).toArray(SplittableGenerator[]::new);
+
+        Tally tally;
+        if (pool == null) {
+            tally = new Tally(generator);
+            for (int chunk = 0; chunk < streams.length; chunk++) {
+                tally.chunk(base, streams[chunk], chunkRuns(runs, chunk));
+            }
+        } else {
+            AtomicInteger next = new AtomicInteger();
+
+            List<ForkJoinTask<Tally>> tasks = new ArrayList<>();
+            for (int i = 0; i < Math.min(pool.getParallelism(), streams.length); i++) {
+                tasks.add(pool.submit(() -> {
+                    Tally local = new Tally(generator);
+                    for (int chunk; (chunk = next.getAndIncrement()) < streams.length; ) {
+                        local.chunk(base, streams[chunk], chunkRuns(runs, chunk));
+                    }
+                    return local;
+                }));
+            }
+
+            tally = new Tally(generator);
+            for (ForkJoinTask<Tally> task : tasks) {
+                tally.merge(task.join());
+            }
+        }
+
+        return tally.result(runs);
+    }
+
+    private static int chunkRuns(long runs, int chunk) {
+        return (int) Math.min(CHUNK, runs - (long) chunk * CHUNK);
+    }
+
+    /**
+     * Counts the materials generated by a single thread. Histograms are indexed by material ID, and don't count runs
+     * that generated none of a material until the result is built.
+     */
+    private static final class Tally implements Consumer<ItemStack> {
+
+        private final @NotNull LootGenerator generator;
+
+        private long[][] histograms = new long[0][];
+
+        // The amounts of the current run, and the IDs of the materials that have a non-zero amount
+        private int[] amounts = new int[0];
+        private int[] touched = new int[16];
+        private int touchedCount;
+
+        Tally(@NotNull LootGenerator generator) {
+            this.generator = generator;
+        }
+
+        void chunk(@NotNull LootContext template, @NotNull SplittableGenerator stream, int runs) {
+            LootContext context = LootContextImpl.with(template, LootContext.RANDOM, Random.from(stream));
+
+            for (int run = 0; run < runs; run++) {
+                generator.generate(context, this);
+
+                for (int i = 0; i < touchedCount; i++) {
+                    int id = touched[i];
+                    record(id, amounts[id]);
+                    amounts[id] = 0;
+                }
+                touchedCount = 0;
+            }
+        }
+
+        @Override
+        public void accept(@NotNull ItemStack item) {
+            if (item.isAir() || item.amount() <= 0) return;
+
+            int id = item.material().id();
+            if (id >= amounts.length) {
+                amounts = Arrays.copyOf(amounts, Math.max(id + 1, amounts.length * 2));
+            }
+
+            if (amounts[id] == 0) {
+                if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                touched[touchedCount++] = id;
+            }
+            amounts[id] += item.amount();
+        }
+
+        private void record(int id, int amount) {
+            histogram(id, amount)[amount]++;
+        }
+
+        /**
+         * Returns the histogram of the provided material ID, growing it so that it can count the provided amount.
+         */
+        private long @NotNull [] histogram(int id, int amount) {
+            if (id >= histograms.length) {
+                histograms = Arrays.copyOf(histograms, Math.max(id + 1, histograms.length * 2));
+            }
+
+            long[] histogram = histograms[id];
+            if (histogram == null) {
+                histogram = histograms[id] = new long[amount + 1];
+            } else if (amount >= histogram.length) {
+                histogram = histograms[id] = Arrays.copyOf(histogram, Math.max(amount + 1, histogram.length * 2));
+            }
+            return histogram;
+        }
+
+        void merge(@NotNull Tally other) {
+            for (int id = 0; id < other.histograms.length; id++) {
+                long[] histogram = other.histograms[id];
+                if (histogram == null) continue;
+
+                long[] merged = histogram(id, histogram.length - 1);
+                for (int amount = 1; amount < histogram.length; amount++) {
+                    merged[amount] += histogram[amount];
+                }
+            }
+        }
+
+        @NotNull Result result(long runs) {
+            Map<Material, Distribution> materials = new LinkedHashMap<>();
+            for (int id = 0; id < histograms.length; id++) {
+                long[] histogram = histograms[id];
+                if (histogram == null) continue;
+
+                int length = histogram.length;
+                while (length > 1 && histogram[length - 1] == 0) length--;
+                histogram = Arrays.copyOf(histogram, length);
+
+                long generated = 0;
+                for (int amount = 1; amount < length; amount++) generated += histogram[amount];
+                histogram[0] = runs - generated;
+
+                Material material = Material.fromId(id);
+                if (material != null) {
+                    materials.put(material, new Distribution(material, histogram));
+                }
+            }
+            return new Result(runs, materials);
+        }
+    }
+
+}
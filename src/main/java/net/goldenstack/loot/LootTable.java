@@ -1,5 +1,6 @@
 package net.goldenstack.loot;
 
+import net.goldenstack.loot.util.Serial;
 import net.goldenstack.loot.util.Template;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.utils.NamespaceID;
@@ -9,12 +10,14 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A loot table.
  * @param pools the pools that generate items in this table
  * @param functions the functions applied to each output item of this table
  * @param randomSequence An ID specifying the name of the random sequence that is used to generate loot from this loot table.
+ *                       It's only used when the context has no random of its own; see {@link RandomSequences}.
  */
 public record LootTable(@NotNull List<LootPool> pools, @NotNull List<LootFunction> functions, @Nullable NamespaceID randomSequence) implements LootGenerator {
 
@@ -24,20 +27,33 @@ public record LootTable(@NotNull List<LootPool> pools, @NotNull List<LootFunctio
     public static final @NotNull BinaryTagSerializer<LootTable> SERIALIZER = Template.template(
             "pools", LootPool.SERIALIZER.list(), LootTable::pools,
             "functions", LootFunction.SERIALIZER.list(), LootTable::functions,
-            "random_sequence", Template.template(() -> null), LootTable::randomSequence,
+            "random_sequence", Serial.KEY.optional(), LootTable::randomSequence,
             LootTable::new
     );
 
     @Override
     public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
         List<ItemStack> items = new ArrayList<>();
+        generate(context, items::add);
+        return items;
+    }
 
-        for (var pool : pools) {
-            for (var item : pool.generate(context)) {
-                items.add(LootFunction.apply(functions, item, context));
-            }
-        }
+    @Override
+    public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        LootContextImpl.startGeneration(context);
+        generateNested(context, sink);
+    }
 
-        return items;
+    /**
+     * Generates this table as part of the generation of another table, keeping the values derived from the context
+     * so far.
+     */
+    void generateNested(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        context = RandomSequences.apply(context, randomSequence);
+        Consumer<ItemStack> output = LootFunction.apply(functions, sink, context);
+
+        for (int i = 0; i < pools.size(); i++) {
+            pools.get(i).generate(context, output);
+        }
     }
 }
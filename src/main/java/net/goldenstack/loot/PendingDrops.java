@@ -0,0 +1,124 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.event.instance.InstanceUnregisterEvent;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.tag.Tag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The drops of an instance that are waiting for its next tick.<br>
+ * An unregistered instance is never ticked again, so a single listener fails the pending drops of every instance that's
+ * unregistered, instead of each drop watching its instance. Each drop is claimed exactly once, either by its tick or
+ * by the listener, so a drop is never both spawned and reported as failed.
+ */
+final class PendingDrops {
+
+    private static final @NotNull Tag<PendingDrops> TAG = Tag.Transient("trove:pending_drops");
+
+    private static final class Listener {
+        static {
+            MinecraftServer.getGlobalEventHandler().addListener(InstanceUnregisterEvent.class, event -> {
+                PendingDrops pending = event.getInstance().getTag(TAG);
+                if (pending == null) return;
+
+                for (Drop<?> drop : pending.close()) {
+                    drop.fail(event.getInstance());
+                }
+            });
+        }
+
+        static void register() {}
+    }
+
+    private final @NotNull Set<Drop<?>> drops = new LinkedHashSet<>();
+    private boolean closed;
+
+    /**
+     * Runs the provided action on the instance's next tick, returning a future that's completed with the provided
+     * value once it has run, or exceptionally if the instance is unregistered first.
+     */
+    static <T> @NotNull CompletableFuture<T> schedule(@NotNull Instance instance, T value, @NotNull Consumer<Instance> action) {
+        Listener.register();
+
+        Drop<T> drop = new Drop<>(value, action);
+        PendingDrops pending = instance.updateAndGetTag(TAG, existing -> existing != null ? existing : new PendingDrops());
+
+        // The instance may have been unregistered before the listener saw it, so its registration is checked after
+        if (!pending.add(drop) || !instance.isRegistered()) {
+            pending.remove(drop);
+            drop.fail(instance);
+            return drop.future;
+        }
+
+        instance.scheduleNextTick(target -> {
+            pending.remove(drop);
+            drop.run(target);
+        });
+        return drop.future;
+    }
+
+    private synchronized boolean add(@NotNull Drop<?> drop) {
+        return !closed && drops.add(drop);
+    }
+
+    private synchronized void remove(@NotNull Drop<?> drop) {
+        drops.remove(drop);
+    }
+
+    private synchronized @NotNull List<Drop<?>> close() {
+        closed = true;
+        List<Drop<?>> closing = new ArrayList<>(drops);
+        drops.clear();
+        return closing;
+    }
+
+    private static final class Drop<T> {
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private final T value;
+        private final @NotNull Consumer<Instance> action;
+
+        private Drop(T value, @NotNull Consumer<Instance> action) {
+            this.value = value;
+            this.action = action;
+        }
+
+        void run(@NotNull Instance instance) {
+            if (!claimed.compareAndSet(false, true)) return;
+
+            if (!instance.isRegistered()) {
+                future.completeExceptionally(unregistered(instance));
+                return;
+            }
+
+            try {
+                action.accept(instance);
+                future.complete(value);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        void fail(@NotNull Instance instance) {
+            if (claimed.compareAndSet(false, true)) {
+                future.completeExceptionally(unregistered(instance));
+            }
+        }
+    }
+
+    private static @NotNull IllegalStateException unregistered(@NotNull Instance instance) {
+        return new IllegalStateException("Instance " + instance.getUniqueId() + " was unregistered before loot could be dropped in it");
+    }
+
+}
@@ -0,0 +1,76 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.AliasTable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The immutable entry list of a {@link LootPool}. If every entry always generates exactly itself as a choice, with a
+ * weight that doesn't depend on the context, the pool's distribution never changes, so an {@link AliasTable} for it
+ * is built once here instead of rebuilding cumulative weights on every roll.
+ */
+final class PoolEntries extends AbstractList<LootEntry> implements RandomAccess {
+
+    private final @NotNull List<LootEntry> entries;
+    private final @Nullable AliasTable alias;
+
+    private PoolEntries(@NotNull List<LootEntry> entries) {
+        this.entries = List.copyOf(entries);
+        this.alias = buildAlias(this.entries);
+    }
+
+    static @NotNull PoolEntries of(@NotNull List<LootEntry> entries) {
+        return entries instanceof PoolEntries pool ? pool : new PoolEntries(entries);
+    }
+
+    /**
+     * Returns the alias table over this list's entries, or null if the entries are not all static.
+     */
+    @Nullable AliasTable alias() {
+        return alias;
+    }
+
+    @Override
+    public LootEntry get(int index) {
+        return entries.get(index);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    private static @Nullable AliasTable buildAlias(@NotNull List<LootEntry> entries) {
+        long[] weights = new long[entries.size()];
+        for (int i = 0; i < weights.length; i++) {
+            if (!(entries.get(i) instanceof LootEntry.Choice.Single single) || !isStatic(single)) return null;
+
+            // Equivalent to Standard#getWeight when there is no quality
+            weights[i] = Math.max(1, single.weight());
+        }
+
+        return AliasTable.of(weights);
+    }
+
+    /**
+     * Returns whether the provided entry is a built-in entry that requests itself as a choice when its predicates
+     * pass, and nothing otherwise. Other implementations may override how choices are requested.
+     */
+    static boolean isBuiltinSingle(@NotNull LootEntry.Choice.Single entry) {
+        return entry instanceof LootEntry.Item || entry instanceof LootEntry.Empty ||
+                entry instanceof LootEntry.Dynamic || entry instanceof LootEntry.LootTable ||
+                entry instanceof LootEntry.LinkedTable || (entry instanceof LootEntry.Tag tag && !tag.expand());
+    }
+
+    /**
+     * Returns whether the provided entry always requests exactly itself as a choice, with a constant weight.
+     */
+    private static boolean isStatic(@NotNull LootEntry.Choice.Single entry) {
+        return isBuiltinSingle(entry) && entry.predicates().isEmpty() && entry.quality() == 0;
+    }
+
+}
@@ -0,0 +1,134 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.instance.Instance;
+import net.minestom.server.tag.Tag;
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * The random sequences of a world. Each sequence is a Xoroshiro128++ generator seeded from both the world seed and the
+ * sequence's ID, so a table with a {@link LootTable#randomSequence() random sequence} generates the same loot in the
+ * same order for the same world seed, independently of every other sequence.<br>
+ * Sequences are only used when a context has no {@link LootContext#RANDOM} of its own, and are looked up from the
+ * context's {@link LootContext#WORLD}, which must have been given sequences with {@link #install(Instance, long)}.<br>
+ * The generators aren't synchronized, which makes them much cheaper than {@link java.util.Random}, but also means
+ * that each sequence must only be used by one thread at a time, which is normally the instance's tick thread. Loot
+ * generated off the tick thread must be given its own {@link LootContext#RANDOM} instead, so
+ * {@link LootGenerator#generateAsync(LootContext, java.util.concurrent.Executor)} and batches generated on a pool
+ * reject contexts without one.
+ */
+public final class RandomSequences {
+
+    private static final @NotNull Tag<RandomSequences> TAG = Tag.Transient("trove:random_sequences");
+
+    private static final @NotNull RandomGeneratorFactory<?> FACTORY = RandomGeneratorFactory.of("Xoroshiro128PlusPlus");
+
+    private final long seed;
+    private final @NotNull Map<NamespaceID, Random> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty set of sequences for a world with the provided seed.
+     * @param seed the seed of the world
+     */
+    public RandomSequences(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Gives the provided instance a new set of random sequences, replacing any it already had.
+     * @param instance the instance to give sequences to
+     * @param seed the seed of the instance's world
+     * @return the instance's new sequences
+     */
+    public static @NotNull RandomSequences install(@NotNull Instance instance, long seed) {
+        RandomSequences sequences = new RandomSequences(seed);
+        instance.setTag(TAG, sequences);
+        return sequences;
+    }
+
+    /**
+     * Returns the random sequences of the provided instance, or null if it has none.
+     * @param instance the instance to get the sequences of
+     * @return the instance's sequences
+     */
+    public static @Nullable RandomSequences of(@NotNull Instance instance) {
+        return instance.getTag(TAG);
+    }
+
+    /**
+     * Returns the seed of the world these sequences belong to.
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Returns the provided sequence, creating it if it hasn't been used yet. The returned random is not synchronized.
+     * @param id the ID of the sequence
+     * @return the sequence's random
+     */
+    public @NotNull Random get(@NotNull NamespaceID id) {
+        return sequences.computeIfAbsent(id, this::create);
+    }
+
+    /**
+     * Restarts the provided sequence, so that it generates the same numbers as it did when it was first used.
+     * @param id the ID of the sequence
+     */
+    public void reset(@NotNull NamespaceID id) {
+        sequences.remove(id);
+    }
+
+    /**
+     * Restarts every sequence.
+     */
+    public void reset() {
+        sequences.clear();
+    }
+
+    private @NotNull Random create(@NotNull NamespaceID id) {
+        // Each half of the state mixes the world seed with a different hash of the ID
+        long hash = 0;
+        for (byte b : id.asString().getBytes(StandardCharsets.UTF_8)) {
+            hash = hash * 31 + b;
+        }
+        long low = mix(seed ^ mix(hash));
+        long high = mix((low + 0x9E3779B97F4A7C15L) ^ mix(~hash));
+
+        byte[] state = ByteBuffer.allocate(16).putLong(low).putLong(high).array();
+        return Random.from(FACTORY.create(state));
+    }
+
+    /**
+     * Mixes the bits of the provided value with the finalizer of Stafford's variant 13.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Returns a view of the provided context with the random of the provided sequence, if the context has no random of
+     * its own and its world has sequences. Otherwise, returns the context unchanged. The context isn't copied, so
+     * values it has already derived are kept.
+     */
+    static @NotNull LootContext apply(@NotNull LootContext context, @Nullable NamespaceID sequence) {
+        if (sequence == null || context.has(LootContext.RANDOM)) return context;
+
+        Instance world = context.get(LootContext.WORLD);
+        RandomSequences sequences = world != null ? of(world) : null;
+        if (sequences == null) return context;
+
+        return new SequencedContext(context, sequences.get(sequence));
+    }
+
+}
@@ -0,0 +1,169 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.LootTree;
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Links a table registry, replacing each {@link LootEntry.LootTable} entry with a {@link LootEntry.LinkedTable} that
+ * refers directly to its target, so that generation no longer looks nested tables up in the registry. If predicate or
+ * function registries are provided, each {@link LootPredicate.Reference} and {@link LootFunction.Reference} is
+ * likewise replaced with a {@link LootPredicate.LinkedReference} or {@link LootFunction.LinkedReference}.<br>
+ * Missing targets and reference cycles are detected once, while linking. Entries with a missing target, and entries
+ * that would complete a cycle, are left unlinked and reported as problems; they behave exactly as they did before
+ * linking. {@link LootFunction.SetLootTable} only stores its table's ID in the item, so it has nothing to bind, but
+ * missing targets are still reported.<br>
+ * Linking is repeatable: already linked entries and references are resolved again by ID, so a registry can be
+ * re-linked after any of its tables, predicates, or functions are reloaded, which invalidates every previous link.
+ */
+public final class TableLinker {
+
+    /**
+     * The result of linking a registry.
+     * @param tables the linked tables
+     * @param problems a description of each missing target or reference cycle that was found
+     */
+    public record Result(@NotNull Map<NamespaceID, LootTable> tables, @NotNull List<String> problems) {
+        public Result {
+            tables = Map.copyOf(tables);
+            problems = List.copyOf(problems);
+        }
+    }
+
+    private final @NotNull Kind<LootTable> tables;
+    private final @Nullable Kind<LootPredicate> predicates;
+    private final @Nullable Kind<LootFunction> functions;
+
+    private final @NotNull List<String> problems = new ArrayList<>();
+
+    private TableLinker(@NotNull Map<NamespaceID, LootTable> tables,
+                        @Nullable Map<NamespaceID, LootPredicate> predicates,
+                        @Nullable Map<NamespaceID, LootFunction> functions) {
+        this.tables = new Kind<>("table", tables);
+        this.predicates = predicates != null ? new Kind<>("predicate", predicates) : null;
+        this.functions = functions != null ? new Kind<>("function", functions) : null;
+    }
+
+    /**
+     * Links every table in the provided registry. Predicate and function references are left as they are.
+     * @param tables the tables to link, which may have been linked before
+     * @return the linked tables and any problems found
+     */
+    public static @NotNull Result link(@NotNull Map<NamespaceID, LootTable> tables) {
+        return link(tables, null, null);
+    }
+
+    /**
+     * Links every table in the provided registry, also resolving predicate and function references against the
+     * provided registries. References of a kind whose registry is null are left as they are.
+     * @param tables the tables to link, which may have been linked before
+     * @param predicates the predicate registry, or null to not resolve predicate references
+     * @param functions the function registry, or null to not resolve function references
+     * @return the linked tables and any problems found
+     */
+    public static @NotNull Result link(@NotNull Map<NamespaceID, LootTable> tables,
+                                       @Nullable Map<NamespaceID, LootPredicate> predicates,
+                                       @Nullable Map<NamespaceID, LootFunction> functions) {
+        TableLinker linker = new TableLinker(tables, predicates, functions);
+
+        Map<NamespaceID, LootTable> linked = new HashMap<>();
+        for (NamespaceID key : tables.keySet()) {
+            linked.put(key, linker.link(linker.tables, key));
+        }
+
+        return new Result(linked, linker.problems);
+    }
+
+    /**
+     * The values of one kind of registry, along with their linked forms.
+     */
+    private static final class Kind<T> {
+        private final @NotNull String name;
+        private final @NotNull Map<NamespaceID, T> values;
+
+        private final @NotNull Map<NamespaceID, T> linked = new HashMap<>();
+        private final @NotNull LinkedHashSet<NamespaceID> linking = new LinkedHashSet<>();
+
+        Kind(@NotNull String name, @NotNull Map<NamespaceID, T> values) {
+            this.name = name;
+            this.values = values;
+        }
+    }
+
+    private <T> @NotNull T link(@NotNull Kind<T> kind, @NotNull NamespaceID key) {
+        T existing = kind.linked.get(key);
+        if (existing != null) return existing;
+
+        kind.linking.add(key);
+        T value = rewrite(kind.name + " '" + key + "'", kind.values.get(key));
+        kind.linking.remove(key);
+
+        kind.linked.put(key, value);
+        return value;
+    }
+
+    private <T> @NotNull T rewrite(@NotNull String source, @NotNull T tree) {
+        // Previously linked values are resolved again by ID, so there's no need to visit them
+        return LootTree.rewrite(tree, node -> !(node instanceof LootEntry.LinkedTable ||
+                node instanceof LootPredicate.LinkedReference || node instanceof LootFunction.LinkedReference),
+                node -> bind(source, node));
+    }
+
+    private @NotNull Object bind(@NotNull String source, @NotNull Object node) {
+        return switch (node) {
+            case LootEntry.LootTable entry -> {
+                LootTable target = resolve(tables, source, entry.value());
+                yield target == null ? entry : new LootEntry.LinkedTable(entry.predicates(), entry.functions(),
+                        entry.weight(), entry.quality(), entry.value(), target);
+            }
+            case LootEntry.LinkedTable entry -> rewrite(source, new LootEntry.LootTable(entry.predicates(),
+                    entry.functions(), entry.weight(), entry.quality(), entry.value()));
+            case LootPredicate.Reference reference -> {
+                if (predicates == null) yield reference;
+
+                LootPredicate target = resolve(predicates, source, reference.name());
+                yield target == null ? reference : new LootPredicate.LinkedReference(reference.name(), target);
+            }
+            case LootPredicate.LinkedReference reference -> predicates == null ? reference :
+                    rewrite(source, new LootPredicate.Reference(reference.name()));
+            case LootFunction.Reference reference -> {
+                if (functions == null) yield reference;
+
+                LootFunction target = resolve(functions, source, reference.name());
+                yield target == null ? reference : new LootFunction.LinkedReference(reference.predicates(), reference.name(), target);
+            }
+            case LootFunction.LinkedReference reference -> functions == null ? reference :
+                    rewrite(source, new LootFunction.Reference(reference.predicates(), reference.name()));
+            case LootFunction.SetLootTable function -> {
+                if (!tables.values.containsKey(function.name())) {
+                    problems.add("The " + source + " sets container loot to missing table '" + function.name() + "'");
+                }
+                yield function;
+            }
+            default -> node;
+        };
+    }
+
+    private <T> @Nullable T resolve(@NotNull Kind<T> kind, @NotNull String source, @NotNull NamespaceID target) {
+        if (!kind.values.containsKey(target)) {
+            problems.add("The " + source + " refers to missing " + kind.name + " '" + target + "'");
+            return null;
+        }
+
+        if (kind.linking.contains(target)) {
+            List<NamespaceID> cycle = new ArrayList<>(kind.linking);
+            cycle = cycle.subList(cycle.indexOf(target), cycle.size());
+
+            problems.add("The " + source + " completes a " + kind.name + " reference cycle: " +
+                    cycle.stream().map(NamespaceID::asString).collect(Collectors.joining(" -> ")) + " -> " + target);
+            return null;
+        }
+
+        return link(kind, target);
+    }
+
+}
@@ -0,0 +1,289 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.LootTree;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+
+/**
+ * Simplifies loaded loot tables into equivalent, smaller trees, by deciding at load time whatever doesn't depend on
+ * the context. For example, uniform numbers with equal constant bounds become constants, random chances of 0 or 1
+ * become constant conditions, single-term and double-inverted conditions are unwrapped, empty function sequences are
+ * removed, and pools, entries, and functions whose conditions can never pass are dropped.<br>
+ * Constant conditions are represented as an empty {@link LootPredicate.AllOf} (always true) or an empty
+ * {@link LootPredicate.AnyOf} (always false). Optimized tables generate loot with the same distribution as the
+ * originals, but they no longer draw random numbers whose outcome is already decided, so a given random state may
+ * produce different loot than it did before.
+ */
+public final class TableOptimizer {
+
+    /**
+     * The result of optimizing a table.
+     * @param table the optimized table
+     * @param changes a description of each kind of simplification that was made, mapped to how often it was made
+     * @param nodesBefore the number of distinct nodes in the original table
+     * @param nodesAfter the number of distinct nodes in the optimized table
+     */
+    public record Result(@NotNull LootTable table, @NotNull Map<String, Integer> changes, int nodesBefore, int nodesAfter) {
+        public Result {
+            changes = Collections.unmodifiableMap(new LinkedHashMap<>(changes));
+        }
+    }
+
+    static final @NotNull LootPredicate TRUE = new LootPredicate.AllOf(List.of());
+    static final @NotNull LootPredicate FALSE = new LootPredicate.AnyOf(List.of());
+
+    private static final @NotNull ClassValue<String[]> NAMES = new ClassValue<>() {
+        @Override
+        protected String[] computeValue(@NotNull Class<?> type) {
+            return Arrays.stream(type.getRecordComponents()).map(RecordComponent::getName).toArray(String[]::new);
+        }
+    };
+
+    private final @NotNull Map<String, Integer> changes = new LinkedHashMap<>();
+
+    private TableOptimizer() {}
+
+    /**
+     * Optimizes the provided table.
+     * @param table the table to optimize
+     * @return the optimized table, along with a report of what was changed
+     */
+    public static @NotNull Result optimize(@NotNull LootTable table) {
+        TableOptimizer optimizer = new TableOptimizer();
+        LootTable optimized = LootTree.rewrite(table, optimizer::simplify);
+        return new Result(optimized, optimizer.changes, count(table), count(optimized));
+    }
+
+    private static int count(@NotNull LootTable table) {
+        int[] count = {0};
+        LootTree.rewrite(table, node -> {
+            if (LootTree.isNode(node)) count[0]++;
+            return node;
+        });
+        return count[0];
+    }
+
+    private void change(@NotNull String description) {
+        changes.merge(description, 1, Integer::sum);
+    }
+
+    private @NotNull Object simplify(@NotNull Object node) {
+        if (!(node instanceof Record record) || !LootTree.isNode(record)) return node;
+
+        Object simplified = simplifyLists(record);
+
+        if (simplified instanceof LootNumber.Uniform uniform) {
+            if (uniform.min() instanceof LootNumber.Constant min && min.equals(uniform.max())) {
+                change("Folded uniform numbers with equal bounds");
+                return min;
+            }
+        } else if (simplified instanceof LootNumber.Binomial binomial) {
+            if (binomial.trials() instanceof LootNumber.Constant trials && binomial.probability() instanceof LootNumber.Constant probability) {
+                if ((int) trials.value() <= 0 || !(probability.value() > 0)) {
+                    change("Folded binomial numbers that never succeed");
+                    return new LootNumber.Constant(0);
+                } else if (probability.value() >= 1) {
+                    change("Folded binomial numbers that always succeed");
+                    return new LootNumber.Constant((int) trials.value());
+                }
+            }
+        } else if (simplified instanceof LootPredicate.RandomChance random) {
+            if (random.chance() instanceof LootNumber.Constant chance) {
+                if (chance.value() >= 1) {
+                    change("Folded random chances that always pass");
+                    return TRUE;
+                } else if (!(chance.value() > 0)) {
+                    change("Folded random chances that never pass");
+                    return FALSE;
+                }
+            }
+        } else if (simplified instanceof LootPredicate.Inverted inverted) {
+            if (inverted.term() instanceof LootPredicate.Inverted inner) {
+                change("Removed double inversions");
+                return inner.term();
+            } else if (isConstant(inverted.term())) {
+                change("Folded inverted constant conditions");
+                return inverted.term().equals(TRUE) ? FALSE : TRUE;
+            }
+        } else if (simplified instanceof LootPredicate.AllOf all) {
+            return allOf(all);
+        } else if (simplified instanceof LootPredicate.AnyOf any) {
+            return anyOf(any);
+        } else if (simplified instanceof LootFunction.Sequence sequence && sequence.functions().size() == 1) {
+            change("Unwrapped single-function sequences");
+            return sequence.functions().getFirst();
+        }
+
+        return simplified;
+    }
+
+    private @NotNull LootPredicate allOf(@NotNull LootPredicate.AllOf all) {
+        if (all.terms().isEmpty()) return TRUE;
+
+        if (all.terms().contains(FALSE)) {
+            change("Folded all_of conditions containing a condition that never passes");
+            return FALSE;
+        }
+
+        List<LootPredicate> terms = conditions(all.terms());
+        if (terms.isEmpty()) return TRUE;
+        if (terms.size() == 1) {
+            change("Unwrapped single-term all_of conditions");
+            return terms.getFirst();
+        }
+        return terms == all.terms() ? all : new LootPredicate.AllOf(terms);
+    }
+
+    private @NotNull LootPredicate anyOf(@NotNull LootPredicate.AnyOf any) {
+        if (any.terms().isEmpty()) return FALSE;
+
+        if (any.terms().contains(TRUE)) {
+            change("Folded any_of conditions containing a condition that always passes");
+            return TRUE;
+        }
+
+        List<LootPredicate> terms = new ArrayList<>(any.terms());
+        if (terms.removeIf(FALSE::equals)) {
+            change("Removed conditions that never pass from any_of conditions");
+        }
+
+        if (terms.isEmpty()) return FALSE;
+        if (terms.size() == 1) {
+            change("Unwrapped single-term any_of conditions");
+            return terms.getFirst();
+        }
+        return terms.size() == any.terms().size() ? any : new LootPredicate.AnyOf(List.copyOf(terms));
+    }
+
+    /**
+     * Simplifies the condition, function, entry, and pool lists of the provided node, which are identified by their
+     * component names.
+     */
+    @SuppressWarnings("unchecked")
+    private @NotNull Object simplifyLists(@NotNull Record node) {
+        String[] names = NAMES.get(node.getClass());
+
+        Object[] components = null;
+        boolean changed = false;
+
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if (!name.equals("predicates") && !name.equals("functions") && !name.equals("entries") &&
+                    !name.equals("children") && !name.equals("pools")) continue;
+
+            if (components == null) components = LootTree.components(node);
+            if (!(components[i] instanceof List<?> list)) continue;
+
+            Object value = switch (name) {
+                case "predicates" -> conditions((List<LootPredicate>) list);
+                case "functions" -> functions((List<LootFunction>) list);
+                case "pools" -> pools((List<LootPool>) list);
+                default -> entries((List<LootEntry>) list, node instanceof LootEntry.Sequence);
+            };
+
+            if (value != list) {
+                components[i] = value;
+                changed = true;
+            }
+        }
+
+        return changed ? LootTree.construct(node.getClass(), components) : node;
+    }
+
+    private static boolean isConstant(@NotNull LootPredicate predicate) {
+        return predicate.equals(TRUE) || predicate.equals(FALSE);
+    }
+
+    /**
+     * Returns whether the provided node has conditions that can never all pass.
+     */
+    private static boolean never(@NotNull Object node) {
+        if (!(node instanceof Record record) || !LootTree.isNode(record)) return false;
+
+        String[] names = NAMES.get(record.getClass());
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals("predicates") && LootTree.components(record)[i] instanceof List<?> list && list.contains(FALSE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private @NotNull List<LootPredicate> conditions(@NotNull List<LootPredicate> conditions) {
+        if (conditions.isEmpty()) return conditions;
+
+        if (conditions.contains(FALSE)) {
+            if (conditions.size() == 1) return conditions;
+            change("Reduced conditions containing a condition that never passes");
+            return List.of(FALSE);
+        }
+
+        if (!conditions.contains(TRUE)) return conditions;
+
+        List<LootPredicate> kept = new ArrayList<>(conditions);
+        kept.removeIf(TRUE::equals);
+        change("Removed conditions that always pass");
+        return List.copyOf(kept);
+    }
+
+    private @NotNull List<LootFunction> functions(@NotNull List<LootFunction> functions) {
+        List<LootFunction> kept = new ArrayList<>(functions.size());
+        boolean changed = false;
+
+        for (LootFunction function : functions) {
+            if (function instanceof LootFunction.Sequence sequence) {
+                change(sequence.functions().isEmpty() ? "Removed empty function sequences" : "Inlined nested function sequences");
+                kept.addAll(sequence.functions());
+                changed = true;
+            } else if (never(function)) {
+                change("Removed functions whose conditions never pass");
+                changed = true;
+            } else {
+                kept.add(function);
+            }
+        }
+
+        return changed ? List.copyOf(kept) : functions;
+    }
+
+    private @NotNull List<LootEntry> entries(@NotNull List<LootEntry> entries, boolean sequence) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (!never(entries.get(i))) continue;
+
+            if (sequence) {
+                // A sequence stops at the first child that has no choices
+                change("Truncated sequences at an entry whose conditions never pass");
+                return List.copyOf(entries.subList(0, i));
+            }
+
+            List<LootEntry> kept = new ArrayList<>(entries);
+            int removed = kept.size();
+            kept.removeIf(TableOptimizer::never);
+            removed -= kept.size();
+
+            for (int j = 0; j < removed; j++) {
+                change("Removed entries whose conditions never pass");
+            }
+            return List.copyOf(kept);
+        }
+        return entries;
+    }
+
+    private @NotNull List<LootPool> pools(@NotNull List<LootPool> pools) {
+        List<LootPool> kept = new ArrayList<>(pools.size());
+        for (LootPool pool : pools) {
+            if (never(pool)) {
+                change("Removed pools whose conditions never pass");
+            } else if (pool.entries().isEmpty() || (pool.rolls() instanceof LootNumber.Constant rolls &&
+                    (int) rolls.value() <= 0 && pool.bonusRolls() instanceof LootNumber.Constant bonus && bonus.value() == 0)) {
+                change("Removed pools that never roll");
+            } else {
+                kept.add(pool);
+            }
+        }
+        return kept.size() == pools.size() ? pools : List.copyOf(kept);
+    }
+
+}
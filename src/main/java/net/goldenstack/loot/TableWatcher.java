@@ -0,0 +1,205 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps a table registry up to date with a directory of loot tables, re-reading only the files that are created,
+ * modified, or deleted.<br>
+ * Every update builds a new unmodifiable map and publishes it in one write, so readers always see either the
+ * registry from before an update or the one after it. Generation that spans several lookups (e.g. nested tables)
+ * should capture {@link #tables()} once and look tables up in that map, so that it sees a single version throughout.
+ * <br>
+ * A file that fails to read keeps its previous table, if any, and the failure is logged.<br>
+ * A transform may be provided to post-process every published registry, such as
+ * {@code tables -> TableLinker.link(tables).tables()}. It always receives the tables as read from the directory.
+ */
+public final class TableWatcher implements AutoCloseable {
+
+    private static final @NotNull Logger LOGGER = LoggerFactory.getLogger(TableWatcher.class);
+
+    /**
+     * How long to wait for more events after the first, so that editors that save in several steps only cause one
+     * update.
+     */
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private final @NotNull Path directory;
+    private final @NotNull WatchService watcher;
+    private final @NotNull Thread thread;
+
+    private final @NotNull UnaryOperator<Map<NamespaceID, LootTable>> transform;
+
+    private final @NotNull Map<NamespaceID, Path> paths;
+    private final @NotNull Map<NamespaceID, LootTable> read;
+    private volatile @NotNull Map<NamespaceID, LootTable> tables;
+
+    private volatile boolean closed;
+
+    TableWatcher(@NotNull Path directory, @NotNull UnaryOperator<Map<NamespaceID, LootTable>> transform) throws IOException {
+        this.directory = directory;
+        this.transform = transform;
+        this.watcher = directory.getFileSystem().newWatchService();
+
+        try {
+            registerAll(directory);
+
+            this.paths = new HashMap<>(Trove.findTables(directory));
+            this.read = new HashMap<>(Trove.readTables(directory));
+            this.tables = Map.copyOf(transform.apply(Collections.unmodifiableMap(read)));
+        } catch (IOException | RuntimeException e) {
+            watcher.close();
+            throw e;
+        }
+
+        this.thread = Thread.ofPlatform().daemon().name("trove-table-watcher").start(this::run);
+    }
+
+    /**
+     * Returns the current table registry. The returned map is unmodifiable and never changes; later updates publish a
+     * new map instead.
+     */
+    public @NotNull Map<NamespaceID, LootTable> tables() {
+        return tables;
+    }
+
+    /**
+     * Returns the current table with the provided ID, suitable for use as
+     * {@link net.goldenstack.loot.util.VanillaInterface#tableRegistry(NamespaceID)}.
+     * @param key the ID of the table
+     * @return the table, or null if there is none
+     */
+    public @Nullable LootTable get(@NotNull NamespaceID key) {
+        return tables.get(key);
+    }
+
+    /**
+     * Stops watching the directory. The last published registry remains available.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watcher.close();
+    }
+
+    private void run() {
+        while (!closed) {
+            Set<Path> changed = new LinkedHashSet<>();
+            boolean overflow = false;
+
+            try {
+                WatchKey key = watcher.take();
+                do {
+                    overflow |= collect(key, changed);
+                    key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            try {
+                if (overflow) {
+                    registerAll(directory);
+                    changed.addAll(paths.values());
+                    changed.addAll(Trove.findTables(directory).values());
+                }
+                update(changed);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Could not update loot tables from {}", directory, e);
+            }
+        }
+    }
+
+    /**
+     * Adds the paths changed by the provided key's events to the provided set, returning whether or not any events
+     * were lost.
+     */
+    private boolean collect(@NotNull WatchKey key, @NotNull Set<Path> changed) {
+        boolean overflow = false;
+
+        Path parent = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+
+            Path path = parent.resolve((Path) event.context());
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    registerAll(path);
+                    Trove.findTables(path).forEach((ignored, file) -> changed.add(file));
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Could not watch new directory {}", path, e);
+                }
+            } else {
+                changed.add(path);
+            }
+        }
+
+        key.reset();
+        return overflow;
+    }
+
+    private void update(@NotNull Set<Path> changed) {
+        int reread = 0, removed = 0;
+
+        for (Path path : changed) {
+            if (Files.isRegularFile(path)) {
+                NamespaceID key = Trove.tableKey(directory, path);
+                if (key == null) continue;
+
+                try {
+                    read.put(key, Trove.readTable(path));
+                    paths.put(key, path);
+                    reread++;
+                } catch (RuntimeException e) {
+                    LOGGER.error("Could not read loot table '{}' from {}", key, path, e);
+                }
+            } else if (!Files.exists(path)) {
+                // The path may have been a table or a directory of tables, so remove everything under it
+                var iterator = paths.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    var entry = iterator.next();
+                    if (entry.getValue().startsWith(path)) {
+                        iterator.remove();
+                        read.remove(entry.getKey());
+                        removed++;
+                    }
+                }
+            }
+        }
+
+        if (reread == 0 && removed == 0) return;
+
+        tables = Map.copyOf(transform.apply(Collections.unmodifiableMap(read)));
+
+        LOGGER.debug("Updated loot tables from {} ({} read, {} removed)", directory, reread, removed);
+    }
+
+    private void registerAll(@NotNull Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public @NotNull FileVisitResult preVisitDirectory(@NotNull Path dir, @NotNull BasicFileAttributes attrs) throws IOException {
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+}
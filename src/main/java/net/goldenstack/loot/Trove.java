@@ -1,5 +1,7 @@
 package net.goldenstack.loot;
 
+import net.goldenstack.loot.util.Interner;
+import net.goldenstack.loot.util.TableSnapshot;
 import net.kyori.adventure.nbt.BinaryTag;
 import net.kyori.adventure.nbt.TagStringIOExt;
 import net.minestom.server.MinecraftServer;
@@ -14,14 +16,29 @@ import net.minestom.server.utils.NamespaceID;
 import net.minestom.server.utils.nbt.BinaryTagSerializer;
 import net.minestom.server.utils.time.TimeUnit;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -29,18 +46,295 @@ public class Trove {
     
     private Trove() {}
     
+    private static final @NotNull Logger LOGGER = LoggerFactory.getLogger(Trove.class);
+
+    private static final @NotNull String FILE_SUFFIX = ".json";
+
+    private static final @NotNull List<String> PACK_TABLE_FOLDERS = List.of("loot_tables", "loot_table");
+
     /**
      * Parses every JSON file in the provided directory, or one of its subdirectories, into loot tables, returning the
      * results in to a table registry instance.
      * @param directory the directory to parse
      * @return the registry instance that contains parsing information
      */
-    @SuppressWarnings("UnstableApiUsage")
     public static @NotNull Map<NamespaceID, LootTable> readTables(@NotNull Path directory) {
-        Map<NamespaceID, LootTable> tables = new HashMap<>();
+        return readTables(directory, null);
+    }
+
+    /**
+     * Parses every JSON file in the provided directory, or one of its subdirectories, into loot tables, returning the
+     * results in to a table registry instance.<br>
+     * If a pool is provided, reading, parsing, and deserializing each file is split across it. The returned tables are
+     * identical to those of a sequential read. If any file cannot be read, every file is still attempted, and the
+     * thrown exception has one suppressed exception per failed file.
+     * @param directory the directory to parse
+     * @param pool the pool to read tables on, or null to read them on the calling thread
+     * @return the registry instance that contains parsing information
+     */
+    public static @NotNull Map<NamespaceID, LootTable> readTables(@NotNull Path directory, @Nullable ForkJoinPool pool) {
+        long start = System.nanoTime();
+
+        Map<NamespaceID, LootTable> tables = readAll(findTables(directory), Trove::readTable, pool, directory);
+
+        LOGGER.debug("Read {} loot tables from {} in {} ms ({})", tables.size(), directory,
+                (System.nanoTime() - start) / 1_000_000,
+                pool != null ? "parallelism " + pool.getParallelism() : "sequential");
+
+        return tables;
+    }
+
+    /**
+     * Parses every JSON file in the provided directory, or one of its subdirectories, into loot tables, returning the
+     * results in to a table registry instance.<br>
+     * The provided snapshot file caches the parsed NBT of every table, keyed by a hash of the contents of every file in
+     * the directory. If the snapshot matches the directory, it's memory-mapped and read in place of parsing the JSON
+     * files; otherwise, the JSON files are parsed and the snapshot is rewritten.<br>
+     * This is not a fast startup path. A snapshot only saves parsing JSON: every file is still read to be hashed, and
+     * every table is still deserialized through {@link LootTable#SERIALIZER} on every call. How much time a snapshot
+     * saves hasn't been measured.
+     * @param directory the directory to parse
+     * @param snapshot the snapshot file to read from or write to
+     * @param pool the pool to read tables on, or null to read them on the calling thread
+     * @return the registry instance that contains parsing information
+     * @see TableSnapshot
+     */
+    public static @NotNull Map<NamespaceID, LootTable> readTables(@NotNull Path directory, @NotNull Path snapshot, @Nullable ForkJoinPool pool) {
+        long start = System.nanoTime();
+
+        Map<NamespaceID, Path> files = findTables(directory);
+
+        Map<NamespaceID, BinaryTag> tags = TableSnapshot.read(snapshot, files);
+        boolean stale = tags == null;
+
+        if (stale) {
+            tags = readAll(files, Trove::readTag, pool, directory);
+            TableSnapshot.write(snapshot, files, tags);
+        }
+
+        Map<NamespaceID, LootTable> tables = readAll(tags, Trove::deserializeTable, pool, directory);
+
+        LOGGER.debug("Read {} loot tables from {} in {} ms ({}, {})", tables.size(), stale ? directory : snapshot,
+                (System.nanoTime() - start) / 1_000_000,
+                stale ? "snapshot rewritten" : "snapshot reused",
+                pool != null ? "parallelism " + pool.getParallelism() : "sequential");
+
+        return tables;
+    }
+
+    /**
+     * Reads the loot tables of every provided datapack. Each pack is either a directory or a zip or jar archive, which
+     * is read in place through the zip file system instead of being extracted. Tables are read from
+     * {@code data/<namespace>/loot_table/} (or the legacy {@code loot_tables/}) and given IDs in that namespace.<br>
+     * Packs are layered in order: if several packs contain a table with the same ID, the table from the pack that
+     * appears last in the list is used, similarly to vanilla's pack stack.
+     * @param packs the packs to read, from lowest to highest priority
+     * @param pool the pool to read tables on, or null to read them on the calling thread
+     * @return the registry instance that contains parsing information
+     */
+    public static @NotNull Map<NamespaceID, LootTable> readPacks(@NotNull List<Path> packs, @Nullable ForkJoinPool pool) {
+        long start = System.nanoTime();
+
+        List<FileSystem> archives = new ArrayList<>();
+        try {
+            Map<NamespaceID, Path> files = new LinkedHashMap<>();
+
+            for (Path pack : packs) {
+                Path root = pack;
+                if (Files.isRegularFile(pack)) {
+                    FileSystem archive = FileSystems.newFileSystem(pack);
+                    archives.add(archive);
+                    root = archive.getPath("/");
+                }
+
+                files.putAll(findPackTables(root));
+            }
+
+            Map<NamespaceID, LootTable> tables = readAll(files, Trove::readTable, pool, packs);
+
+            LOGGER.debug("Read {} loot tables from {} packs in {} ms ({})", tables.size(), packs.size(),
+                    (System.nanoTime() - start) / 1_000_000,
+                    pool != null ? "parallelism " + pool.getParallelism() : "sequential");
+
+            return tables;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            for (FileSystem archive : archives) {
+                try {
+                    archive.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Finds every table in the provided datapack root, mapping each to its ID.
+     * @param root the root of the pack, containing the {@code data} directory
+     * @return the table IDs mapped to their files
+     */
+    private static @NotNull Map<NamespaceID, Path> findPackTables(@NotNull Path root) throws IOException {
+        Path data = root.resolve("data");
+        if (!Files.isDirectory(data)) return Map.of();
+
+        List<Path> namespaces;
+        try (var stream = Files.list(data)) {
+            namespaces = stream.filter(Files::isDirectory).sorted().toList();
+        }
+
+        Map<NamespaceID, Path> tables = new LinkedHashMap<>();
+        for (Path namespace : namespaces) {
+            // Strip the trailing separator that zip file system directory names may have
+            String name = namespace.getFileName().toString().replace("/", "");
+
+            for (String folder : PACK_TABLE_FOLDERS) {
+                Path directory = namespace.resolve(folder);
+                if (Files.isDirectory(directory)) {
+                    tables.putAll(findTables(directory, name));
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Indexes every JSON file in the provided directory, or one of its subdirectories, without reading any of them.
+     * Each table is read the first time it's requested from the returned registry, and is cached afterwards, so
+     * tables that are never used are never parsed. This is safe to use from multiple threads; concurrent first
+     * requests for the same table only read it once.<br>
+     * The returned registry is unmodifiable. Iterating over its entries or values reads every table.
+     * @param directory the directory to index
+     * @return the lazily-read registry, suitable for use as {@link net.goldenstack.loot.util.VanillaInterface#tableRegistry(NamespaceID)}
+     */
+    public static @NotNull Map<NamespaceID, LootTable> indexTables(@NotNull Path directory) {
+        return new LazyTableMap(findTables(directory));
+    }
+
+    /**
+     * Reads every JSON file in the provided directory, or one of its subdirectories, into loot tables, and keeps them
+     * up to date as files are created, modified, or deleted. Only changed files are read again, and each update is
+     * published atomically, so in-progress generation never sees a partially updated registry.
+     * @param directory the directory to read and watch
+     * @return the watcher, which should be closed once it's no longer needed
+     * @throws IOException if the directory cannot be watched
+     */
+    public static @NotNull TableWatcher watchTables(@NotNull Path directory) throws IOException {
+        return watchTables(directory, UnaryOperator.identity());
+    }
+
+    /**
+     * Reads every JSON file in the provided directory, or one of its subdirectories, into loot tables, and keeps them
+     * up to date as files are created, modified, or deleted. Only changed files are read again, and each update is
+     * published atomically, so in-progress generation never sees a partially updated registry.<br>
+     * The provided transform is applied to the tables before each publish, e.g. to re-link them with
+     * {@link TableLinker}.
+     * @param directory the directory to read and watch
+     * @param transform the function applied to the tables before they're published
+     * @return the watcher, which should be closed once it's no longer needed
+     * @throws IOException if the directory cannot be watched
+     */
+    public static @NotNull TableWatcher watchTables(@NotNull Path directory, @NotNull UnaryOperator<Map<NamespaceID, LootTable>> transform) throws IOException {
+        return new TableWatcher(directory, transform);
+    }
 
-        final String FILE_SUFFIX = ".json";
+    /**
+     * Deduplicates structurally equal nodes across every provided table, which can greatly reduce the memory used by
+     * large registries. The returned tables are equal to the provided ones.
+     * @param tables the tables to intern
+     * @return the interned tables
+     * @see Interner
+     */
+    public static @NotNull Map<NamespaceID, LootTable> intern(@NotNull Map<NamespaceID, LootTable> tables) {
+        Interner interner = new Interner();
+
+        Map<NamespaceID, LootTable> interned = new HashMap<>();
+        for (var entry : tables.entrySet()) {
+            interned.put(entry.getKey(), interner.intern(entry.getValue()));
+        }
 
+        LOGGER.debug("Interned {} loot tables: {} of {} nodes deduplicated, saving about {} KiB",
+                interned.size(), interner.deduplicated(), interner.visited(), interner.estimatedBytesSaved() / 1024);
+
+        return interned;
+    }
+
+    /**
+     * Converts each of the provided sources into a value, optionally on the provided pool. Every source is attempted
+     * even if some fail; if any do, the thrown exception has one suppressed exception per failed source.
+     * @param sources the sources to read, mapped by table ID
+     * @param reader the function that reads each source
+     * @param pool the pool to read sources on, or null to read them on the calling thread
+     * @param origin where the sources came from, for error messages
+     * @return the read values, mapped by table ID
+     */
+    private static <S, T> @NotNull Map<NamespaceID, T> readAll(@NotNull Map<NamespaceID, S> sources, @NotNull Function<S, T> reader,
+                                                                @Nullable ForkJoinPool pool, @NotNull Object origin) {
+        List<Map.Entry<NamespaceID, S>> entries = List.copyOf(sources.entrySet());
+
+        Object[] results = new Object[entries.size()];
+        RuntimeException[] failures = new RuntimeException[entries.size()];
+
+        IntConsumer read = i -> {
+            var entry = entries.get(i);
+            try {
+                results[i] = reader.apply(entry.getValue());
+            } catch (RuntimeException e) {
+                failures[i] = new RuntimeException("Could not read loot table '" + entry.getKey() + "'", e);
+            }
+        };
+
+        if (pool == null) {
+            for (int i = 0; i < entries.size(); i++) {
+                read.accept(i);
+            }
+        } else {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                final int index = i;
+                tasks.add(pool.submit(() -> read.accept(index)));
+            }
+            tasks.forEach(ForkJoinTask::join);
+        }
+
+        Map<NamespaceID, T> values = new HashMap<>();
+        IllegalStateException failure = null;
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (failures[i] != null) {
+                if (failure == null) {
+                    failure = new IllegalStateException("Could not read every loot table in " + origin);
+                }
+                failure.addSuppressed(failures[i]);
+            } else {
+                @SuppressWarnings("unchecked")
+                T value = (T) results[i];
+                values.put(entries.get(i).getKey(), value);
+            }
+        }
+
+        if (failure != null) throw failure;
+
+        return values;
+    }
+
+    /**
+     * Finds every JSON file in the provided directory, or one of its subdirectories, mapping each to the ID of the
+     * table it contains.
+     * @param directory the directory to search
+     * @return the table IDs mapped to their files
+     */
+    static @NotNull Map<NamespaceID, Path> findTables(@NotNull Path directory) {
+        return findTables(directory, null);
+    }
+
+    /**
+     * Finds every JSON file in the provided directory, or one of its subdirectories, mapping each to the ID of the
+     * table it contains.
+     * @param directory the directory to search
+     * @param namespace the namespace of the table IDs, or null to infer it from each path
+     * @return the table IDs mapped to their files
+     */
+    static @NotNull Map<NamespaceID, Path> findTables(@NotNull Path directory, @Nullable String namespace) {
         List<Path> files;
         try (var stream = Files.find(directory, Integer.MAX_VALUE,
                 (path, attr) -> attr.isRegularFile() && path.getFileName().toString().endsWith(FILE_SUFFIX))) {
@@ -49,27 +343,80 @@ public class Trove {
             throw new RuntimeException(e);
         }
 
+        Map<NamespaceID, Path> tables = new LinkedHashMap<>();
         for (var path : files) {
+            String keyPath = tablePath(directory, path);
+            if (keyPath != null) {
+                tables.put(namespace != null ? NamespaceID.from(namespace, keyPath) : NamespaceID.from(keyPath), path);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Determines the ID of the table at the provided path, relative to the provided directory.
+     * @param directory the root table directory
+     * @param path the path of the table file
+     * @return the table ID, or null if the path is not a table file
+     */
+    static @Nullable NamespaceID tableKey(@NotNull Path directory, @NotNull Path path) {
+        String keyPath = tablePath(directory, path);
+        return keyPath != null ? NamespaceID.from(keyPath) : null;
+    }
 
-            String keyPath = StreamSupport.stream(directory.relativize(path).spliterator(), false).map(Path::toString).collect(Collectors.joining("/"));
+    private static @Nullable String tablePath(@NotNull Path directory, @NotNull Path path) {
+        String keyPath = StreamSupport.stream(directory.relativize(path).spliterator(), false).map(Path::toString).collect(Collectors.joining("/"));
 
-            if (!keyPath.endsWith(FILE_SUFFIX)) continue;
-            keyPath = keyPath.substring(0, keyPath.length() - FILE_SUFFIX.length());
+        if (!keyPath.endsWith(FILE_SUFFIX)) return null;
+        return keyPath.substring(0, keyPath.length() - FILE_SUFFIX.length());
+    }
 
-            BinaryTag tag;
-            try {
-                tag = TagStringIOExt.readTag(Files.readString(path));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+    /**
+     * Reads, parses, and deserializes the loot table in the provided file.
+     * @param path the path of the table file
+     * @return the parsed table
+     */
+    static @NotNull LootTable readTable(@NotNull Path path) {
+        return deserializeTable(readTag(path));
+    }
 
-            tables.put(
-                    NamespaceID.from(keyPath),
-                    LootTable.SERIALIZER.read(new BinaryTagSerializer.ContextWithRegistries(MinecraftServer.process()), tag)
-            );
+    /**
+     * Reads and parses the NBT of the loot table in the provided file.
+     * @param path the path of the table file
+     * @return the table's NBT
+     */
+    static @NotNull BinaryTag readTag(@NotNull Path path) {
+        try {
+            return TagStringIOExt.readTag(Files.readString(path));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + path, e);
         }
+    }
 
-        return tables;
+    /**
+     * Deserializes the loot table in the provided NBT.
+     * @param tag the table's NBT
+     * @return the deserialized table
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    static @NotNull LootTable deserializeTable(@NotNull BinaryTag tag) {
+        return LootTable.SERIALIZER.read(new BinaryTagSerializer.ContextWithRegistries(MinecraftServer.process()), tag);
+    }
+
+    /**
+     * Runs each task on a new virtual thread. This is the default executor of asynchronous generation.
+     */
+    static final @NotNull Executor ASYNC = task -> Thread.ofVirtual().name("Trove-Loot").start(task);
+
+    /**
+     * Runs the provided action on the instance's next tick, returning a future that's completed with the provided
+     * value once it has run.<br>
+     * An unregistered instance is never ticked again, so if the instance is unregistered before the action runs, the
+     * action is skipped and the future is completed exceptionally instead of never being completed.
+     * @see PendingDrops
+     */
+    static <T> @NotNull CompletableFuture<T> nextTick(@NotNull Instance instance, T value, @NotNull Consumer<Instance> action) {
+        return PendingDrops.schedule(instance, value, action);
     }
 
     public static void blockDrop(@NotNull Instance instance, @NotNull ItemStack item, @NotNull Point block) {
@@ -0,0 +1,112 @@
+package net.goldenstack.loot.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A Walker/Vose alias table over a fixed list of integer weights, allowing a weighted index to be picked in constant
+ * time with a single random number and no allocation.<br>
+ * The table is built with integer arithmetic, so each index {@code i} is picked with a probability of exactly
+ * {@code weights[i] / sum(weights)}, the same distribution as a linear scan over cumulative weights.
+ */
+public final class AliasTable {
+
+    private final long total;
+    private final long bound;
+    private final long[] thresholds;
+    private final int[] aliases;
+
+    private AliasTable(long total, long bound, long[] thresholds, int[] aliases) {
+        this.total = total;
+        this.bound = bound;
+        this.thresholds = thresholds;
+        this.aliases = aliases;
+    }
+
+    /**
+     * Builds an alias table from the provided weights, each of which must be at least 1. Returns null if there are
+     * no weights, or if the weights are too large for the table to be represented exactly.
+     * @param weights the weights of each index
+     * @return the alias table, or null if one could not be built
+     */
+    public static @Nullable AliasTable of(long @NotNull [] weights) {
+        int size = weights.length;
+        if (size == 0) return null;
+
+        long total = 0;
+        long bound;
+        try {
+            for (long weight : weights) {
+                if (weight < 1) throw new IllegalArgumentException("Weight " + weight + " is less than 1");
+                total = Math.addExact(total, weight);
+            }
+            bound = Math.multiplyExact(total, size);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+
+        // Each column holds exactly 'total' units; index i needs weights[i] * size units spread across the columns
+        long[] scaled = new long[size];
+        long[] thresholds = new long[size];
+        int[] aliases = new int[size];
+
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0, largeCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size;
+            aliases[i] = i;
+            if (scaled[i] < total) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            thresholds[less] = scaled[less];
+            aliases[less] = more;
+
+            scaled[more] -= total - scaled[less];
+            if (scaled[more] < total) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // With exact arithmetic every remaining column is exactly full
+        while (largeCount > 0) thresholds[large[--largeCount]] = total;
+        while (smallCount > 0) thresholds[small[--smallCount]] = total;
+
+        return new AliasTable(total, bound, thresholds, aliases);
+    }
+
+    /**
+     * Returns the number of indices in this table.
+     */
+    public int size() {
+        return thresholds.length;
+    }
+
+    /**
+     * Picks a random index from this table, weighted with the weights it was built from.
+     * @param random the random generator to use
+     * @return the picked index
+     */
+    public int sample(@NotNull RandomGenerator random) {
+        long value = random.nextLong(0, bound);
+
+        int column = (int) (value / total);
+        long offset = value - column * total;
+
+        return offset < thresholds[column] ? column : aliases[column];
+    }
+
+}
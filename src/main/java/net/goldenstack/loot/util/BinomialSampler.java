@@ -0,0 +1,157 @@
+package net.goldenstack.loot.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Samples binomially distributed numbers, i.e. the number of successes out of a number of independent trials that
+ * each succeed with the same probability, without drawing a random number per trial.<br>
+ * When few successes are expected, this inverts the distribution function, drawing a single random number most of the
+ * time. Otherwise, this uses the BTPE algorithm (Kachitvichyanukul and Schmeiser, <i>Binomial random variate
+ * generation</i>, 1988), which needs about two random numbers per sample regardless of the number of trials.
+ */
+public final class BinomialSampler {
+
+    /**
+     * Below this number of expected successes, inversion is faster than BTPE.
+     */
+    private static final double INVERSION_LIMIT = 30;
+
+    private BinomialSampler() {}
+
+    /**
+     * Samples the number of successes out of the provided number of trials.<br>
+     * This has the same distribution as counting how many of {@code trials} calls to {@code random.nextDouble()}
+     * return a value less than {@code probability}. Non-positive trials or probabilities always have no successes, and
+     * probabilities of at least 1 always succeed.
+     * @param random the random generator to use
+     * @param trials the number of trials
+     * @param probability the probability of each trial succeeding
+     * @return the number of successes, between 0 and {@code trials}
+     */
+    public static int sample(@NotNull RandomGenerator random, int trials, double probability) {
+        if (trials <= 0 || !(probability > 0)) return 0;
+        if (probability >= 1) return trials;
+
+        // Sample the rarer outcome, which keeps both algorithms within their valid range
+        if (probability > 0.5) {
+            return trials - sample(random, trials, 1 - probability);
+        }
+
+        return trials * probability < INVERSION_LIMIT ?
+                inversion(random, trials, probability) :
+                btpe(random, trials, probability);
+    }
+
+    private static int inversion(@NotNull RandomGenerator random, int n, double p) {
+        double q = 1 - p;
+        double qn = Math.exp(n * Math.log1p(-p));
+        double np = n * p;
+        // Far enough into the tail that reaching it is only possible through rounding errors
+        double bound = Math.min(n, np + 10 * Math.sqrt(np * q + 1));
+
+        int x = 0;
+        double px = qn;
+        double u = random.nextDouble();
+
+        while (u > px) {
+            x++;
+            if (x > bound) {
+                x = 0;
+                px = qn;
+                u = random.nextDouble();
+            } else {
+                u -= px;
+                px = ((n - x + 1) * p * px) / (x * q);
+            }
+        }
+        return x;
+    }
+
+    private static int btpe(@NotNull RandomGenerator random, int n, double p) {
+        double q = 1 - p;
+        double nrq = n * p * q;
+        double fm = n * p + p;
+        int m = (int) Math.floor(fm);
+
+        // The hat function: a triangle between xl and xr, two parallelograms, and two exponential tails
+        double p1 = Math.floor(2.195 * Math.sqrt(nrq) - 4.6 * q) + 0.5;
+        double xm = m + 0.5;
+        double xl = xm - p1;
+        double xr = xm + p1;
+        double c = 0.134 + 20.5 / (15.3 + m);
+        double a = (fm - xl) / (fm - xl * p);
+        double laml = a * (1 + a / 2);
+        a = (xr - fm) / (xr * q);
+        double lamr = a * (1 + a / 2);
+        double p2 = p1 * (1 + 2 * c);
+        double p3 = p2 + c / laml;
+        double p4 = p3 + c / lamr;
+
+        while (true) {
+            double u = random.nextDouble() * p4;
+            double v = random.nextDouble();
+            int y;
+
+            if (u <= p1) {
+                // The triangle region is entirely under the distribution, so it's accepted immediately
+                return (int) Math.floor(xm - p1 * v + u);
+            } else if (u <= p2) {
+                double x = xl + (u - p1) / c;
+                v = v * c + 1 - Math.abs(m - x + 0.5) / p1;
+                if (v > 1) continue;
+                y = (int) Math.floor(x);
+            } else if (u <= p3) {
+                y = (int) Math.floor(xl + Math.log(v) / laml);
+                if (y < 0) continue;
+                v = v * (u - p2) * laml;
+            } else {
+                y = (int) Math.floor(xr - Math.log(v) / lamr);
+                if (y > n) continue;
+                v = v * (u - p3) * lamr;
+            }
+
+            int k = Math.abs(y - m);
+            if (k <= 20 || k >= nrq / 2 - 1) {
+                // Evaluate the ratio f(y) / f(m) exactly, with the recurrence of the distribution
+                double s = p / q;
+                double as = s * (n + 1);
+                double f = 1;
+                if (m < y) {
+                    for (int i = m + 1; i <= y; i++) f *= (as / i - s);
+                } else if (m > y) {
+                    for (int i = y + 1; i <= m; i++) f /= (as / i - s);
+                }
+                if (v <= f) return y;
+                continue;
+            }
+
+            // Squeeze with bounds on log(f(y) / f(m)), only computing it with Stirling's formula if that fails
+            double rho = (k / nrq) * ((k * (k / 3.0 + 0.625) + 0.16666666666666666) / nrq + 0.5);
+            double t = -(double) k * k / (2 * nrq);
+            double logV = Math.log(v);
+            if (logV < t - rho) return y;
+            if (logV > t + rho) continue;
+
+            double x1 = y + 1;
+            double f1 = m + 1;
+            double z = n + 1 - m;
+            double w = n - y + 1;
+
+            double bound = xm * Math.log(f1 / x1) + (n - m + 0.5) * Math.log(z / w) + (y - m) * Math.log(w * p / (x1 * q)) +
+                    stirling(f1) + stirling(z) + stirling(x1) + stirling(w);
+
+            if (logV <= bound) return y;
+        }
+    }
+
+    /**
+     * Returns the correction term of Stirling's approximation of {@code log(x!)}.
+     */
+    private static double stirling(double x) {
+        double x2 = x * x;
+        return (13860. - (462. - (132. - (99. - 140. / x2) / x2) / x2) / x2) / x / 166320.;
+    }
+
+}
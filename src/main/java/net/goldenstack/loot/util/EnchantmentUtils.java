@@ -1,5 +1,6 @@
 package net.goldenstack.loot.util;
 
+import net.goldenstack.loot.LootContext;
 import net.kyori.adventure.nbt.BinaryTag;
 import net.kyori.adventure.nbt.ListBinaryTag;
 import net.kyori.adventure.nbt.StringBinaryTag;
@@ -23,6 +24,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 @SuppressWarnings("UnstableApiUsage")
@@ -59,6 +62,31 @@ public class EnchantmentUtils {
         }
     };
 
+    // One slot per source key and enchantment, created the first time the pair is needed
+    private static final @NotNull Map<LootContext.Key<?>, Map<DynamicRegistry.Key<Enchantment>, LootContext.Slot<Integer>>> LEVELS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the level of the provided enchantment on the item or entity stored at the provided key of the context.
+     * Levels are derived values, so each is only looked up once per generation, however many nodes need it.
+     */
+    public static int level(@NotNull LootContext context, @NotNull LootContext.Key<?> source, @NotNull DynamicRegistry.Key<Enchantment> key) {
+        Map<DynamicRegistry.Key<Enchantment>, LootContext.Slot<Integer>> slots = LEVELS.get(source);
+        if (slots == null) {
+            slots = LEVELS.computeIfAbsent(source, ignored -> new ConcurrentHashMap<>());
+        }
+
+        LootContext.Slot<Integer> slot = slots.get(key);
+        if (slot == null) {
+            slot = slots.computeIfAbsent(key, ignored -> LootContext.slot(ctx -> switch (ctx.get(source)) {
+                case ItemStack item -> level(item, key);
+                case Entity entity -> level(entity, key);
+                case null, default -> 0;
+            }));
+        }
+
+        return Objects.requireNonNull(context.derive(slot));
+    }
+
     public static int level(@Nullable ItemStack item, @NotNull DynamicRegistry.Key<Enchantment> key) {
         if (item == null) return 0;
 
@@ -0,0 +1,165 @@
+package net.goldenstack.loot.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+
+/**
+ * Canonicalizes structurally equal loot nodes, so that a node that appears many times across loot tables (e.g.
+ * {@code survives_explosion}, {@code explosion_decay}, constant numbers, and empty condition lists) is only stored
+ * once.<br>
+ * Loot nodes are immutable records, so sharing them is safe. Lists and maps are replaced by unmodifiable copies
+ * before they're shared. Maps are only shared with maps that have the same entries in the same order, and keep that
+ * order, as generation can depend on it (e.g. {@code set_enchantments} draws a random number per entry). A single
+ * interner can be used for any number of trees; nodes are shared across all of them.
+ * <br>
+ * This is not thread-safe.
+ */
+public final class Interner {
+
+    // Rough shallow sizes, assuming compressed oops and class pointers
+    private static final int HEADER_BYTES = 12;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int LIST_BYTES = 16;
+    private static final int MAP_ENTRY_BYTES = 32;
+
+    private final @NotNull Map<Key, Object> canonical = new HashMap<>();
+
+    private int visited;
+    private int deduplicated;
+    private long bytesSaved;
+
+    /**
+     * Interns every node in the provided tree, returning an equal tree that shares as many nodes as possible with
+     * the trees previously interned by this interner.
+     * @param tree the tree to intern
+     * @return the interned tree
+     * @param <T> the type of the tree
+     */
+    public <T> @NotNull T intern(@NotNull T tree) {
+        return LootTree.rewrite(tree, this::canonicalize);
+    }
+
+    /**
+     * Returns the number of distinct nodes, lists, and maps that have been visited.
+     */
+    public int visited() {
+        return visited;
+    }
+
+    /**
+     * Returns the number of visited nodes, lists, and maps that were replaced by an existing equal instance.
+     */
+    public int deduplicated() {
+        return deduplicated;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes that are no longer retained due to deduplication. This only counts
+     * the shallow size of each replaced instance, and assumes a 64-bit JVM with compressed pointers.
+     */
+    public long estimatedBytesSaved() {
+        return bytesSaved;
+    }
+
+    private @NotNull Object canonicalize(@NotNull Object node) {
+        Object value;
+        if (node instanceof List<?> list) {
+            if (list.contains(null)) return node;
+            value = List.copyOf(list);
+        } else if (node instanceof Map<?, ?> map) {
+            if (map.containsKey(null) || map.containsValue(null)) return node;
+            value = Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        } else if (LootTree.isNode(node)) {
+            value = node;
+        } else {
+            return node;
+        }
+
+        visited++;
+
+        Object existing = canonical.putIfAbsent(Key.of(value), value);
+        if (existing == null) return value;
+
+        deduplicated++;
+        bytesSaved += shallowSize(node);
+        return existing;
+    }
+
+    /**
+     * The identity of a list, map, or node. Its children have already been interned, so child lists, maps, and nodes
+     * are compared by identity and leaves by equality. Unlike {@link Map#equals(Object)}, map entries are compared in
+     * iteration order.
+     */
+    private record Key(@NotNull Class<?> kind, @NotNull Object @NotNull [] parts) {
+
+        static @NotNull Key of(@NotNull Object value) {
+            if (value instanceof List<?> list) {
+                return new Key(List.class, list.toArray());
+            } else if (value instanceof Map<?, ?> map) {
+                Object[] parts = new Object[map.size() * 2];
+                int i = 0;
+                for (var entry : map.entrySet()) {
+                    parts[i++] = entry.getKey();
+                    parts[i++] = entry.getValue();
+                }
+                return new Key(Map.class, parts);
+            }
+            return new Key(value.getClass(), LootTree.components((Record) value));
+        }
+
+        private static boolean interned(@NotNull Object part) {
+            return part instanceof List<?> || part instanceof Map<?, ?> || LootTree.isNode(part);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key other) || kind != other.kind || parts.length != other.parts.length) return false;
+
+            for (int i = 0; i < parts.length; i++) {
+                Object a = parts[i], b = other.parts[i];
+                if (a == b) continue;
+                if (a == null || b == null || interned(a) || interned(b) || !a.equals(b)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = kind.hashCode();
+            for (Object part : parts) {
+                hash = 31 * hash + (part == null ? 0 : interned(part) ? System.identityHashCode(part) : part.hashCode());
+            }
+            return hash;
+        }
+    }
+
+    private static long shallowSize(@NotNull Object node) {
+        long size;
+        if (node instanceof List<?> list) {
+            size = LIST_BYTES + HEADER_BYTES + 4 + (long) list.size() * REFERENCE_BYTES;
+        } else if (node instanceof Map<?, ?> map) {
+            size = LIST_BYTES + (long) map.size() * MAP_ENTRY_BYTES;
+        } else {
+            size = HEADER_BYTES;
+            for (RecordComponent component : node.getClass().getRecordComponents()) {
+                Class<?> type = component.getType();
+                if (type == long.class || type == double.class) {
+                    size += 8;
+                } else if (type == int.class || type == float.class) {
+                    size += 4;
+                } else if (type == short.class || type == char.class) {
+                    size += 2;
+                } else if (type == boolean.class || type == byte.class) {
+                    size += 1;
+                } else {
+                    size += REFERENCE_BYTES;
+                }
+            }
+        }
+
+        return (size + 7) & ~7L;
+    }
+
+}
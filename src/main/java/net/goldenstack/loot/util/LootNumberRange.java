@@ -7,7 +7,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * An inclusive number range based on loot numbers.
+ * An inclusive number range based on loot numbers.<br>
+ * Constant bounds are read directly from their primitive value instead of being evaluated as loot numbers, so the
+ * common case of a range with constant bounds never makes a virtual call.
  * @param min the optional minimum value
  * @param max the optional maximum value
  */
@@ -34,10 +36,10 @@ public record LootNumberRange(@Nullable LootNumber min, @Nullable LootNumber max
      */
     public long limit(@NotNull LootContext context, long number) {
         if (this.min != null) {
-            number = Math.max(this.min.getInt(context), number);
+            number = Math.max(intBound(this.min, context), number);
         }
         if (this.max != null) {
-            number = Math.min(this.max.getInt(context), number);
+            number = Math.min(intBound(this.max, context), number);
         }
         return number;
     }
@@ -52,10 +54,10 @@ public record LootNumberRange(@Nullable LootNumber min, @Nullable LootNumber max
      */
     public double limit(@NotNull LootContext context, double number) {
         if (this.min != null) {
-            number = Math.max(this.min.getDouble(context), number);
+            number = Math.max(doubleBound(this.min, context), number);
         }
         if (this.max != null) {
-            number = Math.min(this.max.getDouble(context), number);
+            number = Math.min(doubleBound(this.max, context), number);
         }
         return number;
     }
@@ -68,8 +70,8 @@ public record LootNumberRange(@Nullable LootNumber min, @Nullable LootNumber max
      * @return true if the provided number fits within {@link #min()} and {@link #max()}, and false otherwise
      */
     public boolean check(@NotNull LootContext context, long number) {
-        return (this.min == null || this.min.getInt(context) <= number) &&
-                (this.max == null || this.max.getInt(context) >= number);
+        return (this.min == null || intBound(this.min, context) <= number) &&
+                (this.max == null || intBound(this.max, context) >= number);
     }
 
     /**
@@ -80,8 +82,16 @@ public record LootNumberRange(@Nullable LootNumber min, @Nullable LootNumber max
      * @return true if the provided number fits within {@link #min()} and {@link #max()}, and false otherwise
      */
     public boolean check(@NotNull LootContext context, double number) {
-        return (this.min == null || this.min.getDouble(context) <= number) &&
-                (this.max == null || this.max.getDouble(context) >= number);
+        return (this.min == null || doubleBound(this.min, context) <= number) &&
+                (this.max == null || doubleBound(this.max, context) >= number);
+    }
+
+    private static int intBound(@NotNull LootNumber bound, @NotNull LootContext context) {
+        return bound instanceof LootNumber.Constant constant ? (int) constant.value() : bound.getInt(context);
+    }
+
+    private static double doubleBound(@NotNull LootNumber bound, @NotNull LootContext context) {
+        return bound instanceof LootNumber.Constant constant ? constant.value() : bound.getDouble(context);
     }
 
 }
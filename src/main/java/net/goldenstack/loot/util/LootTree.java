@@ -0,0 +1,185 @@
+package net.goldenstack.loot.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Utilities for rewriting trees of loot nodes.<br>
+ * Every loot node (tables, pools, entries, predicates, functions, numbers, and so on) is an immutable record, so a
+ * tree can be rebuilt generically by reading each record's components and calling its canonical constructor. Only
+ * records from this library are descended into; other objects, such as materials and components, are treated as
+ * leaves.
+ */
+public final class LootTree {
+
+    private LootTree() {}
+
+    private static final @NotNull String PACKAGE = "net.goldenstack.loot";
+
+    private record Shape(@NotNull Method[] accessors, @NotNull Constructor<?> constructor) {}
+
+    private static final @NotNull ClassValue<Shape> SHAPES = new ClassValue<>() {
+        @Override
+        protected Shape computeValue(@NotNull Class<?> type) {
+            RecordComponent[] components = type.getRecordComponents();
+
+            Method[] accessors = new Method[components.length];
+            Class<?>[] types = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                accessors[i] = components[i].getAccessor();
+                accessors[i].setAccessible(true);
+                types[i] = components[i].getType();
+            }
+
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor(types);
+                constructor.setAccessible(true);
+                return new Shape(accessors, constructor);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("Record " + type + " has no canonical constructor", e);
+            }
+        }
+    };
+
+    /**
+     * Returns whether or not the provided object is a loot node whose components can be rewritten.
+     */
+    public static boolean isNode(@NotNull Object object) {
+        return object instanceof Record && object.getClass().getPackageName().startsWith(PACKAGE);
+    }
+
+    /**
+     * Returns the components of the provided node, in declaration order.
+     * @param node the node to read
+     * @return the node's components
+     */
+    public static @NotNull Object[] components(@NotNull Record node) {
+        Method[] accessors = SHAPES.get(node.getClass()).accessors();
+
+        Object[] values = new Object[accessors.length];
+        for (int i = 0; i < accessors.length; i++) {
+            try {
+                values[i] = accessors[i].invoke(node);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Could not read " + accessors[i], e);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Rebuilds the provided tree from the bottom up. Each record, list, and map is first rebuilt from its rewritten
+     * children (keeping the original instance if none changed) and then passed to the provided rewriter, whose result
+     * replaces it. Leaves are passed to the rewriter as-is.<br>
+     * Instances that appear in the tree several times are only rewritten once, so shared subtrees stay shared.
+     * @param tree the tree to rewrite
+     * @param rewriter the function that may replace each node
+     * @return the rewritten tree
+     * @param <T> the type of the tree
+     */
+    public static <T> @NotNull T rewrite(@NotNull T tree, @NotNull UnaryOperator<Object> rewriter) {
+        return rewrite(tree, node -> true, rewriter);
+    }
+
+    /**
+     * Rebuilds the provided tree from the bottom up, like {@link #rewrite(Object, UnaryOperator)}, except that the
+     * children of nodes that fail the provided predicate are not visited; such nodes are passed to the rewriter as
+     * they are.
+     * @param tree the tree to rewrite
+     * @param descend whether or not to rewrite the children of each node
+     * @param rewriter the function that may replace each node
+     * @return the rewritten tree
+     * @param <T> the type of the tree
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> @NotNull T rewrite(@NotNull T tree, @NotNull Predicate<Object> descend, @NotNull UnaryOperator<Object> rewriter) {
+        return (T) new Rewriter(descend, rewriter).rewrite(tree);
+    }
+
+    private static final class Rewriter {
+
+        private final @NotNull Predicate<Object> descend;
+        private final @NotNull UnaryOperator<Object> rewriter;
+        private final @NotNull Map<Object, Object> done = new IdentityHashMap<>();
+
+        Rewriter(@NotNull Predicate<Object> descend, @NotNull UnaryOperator<Object> rewriter) {
+            this.descend = descend;
+            this.rewriter = rewriter;
+        }
+
+        Object rewrite(Object node) {
+            if (node == null) return null;
+
+            Object existing = done.get(node);
+            if (existing != null) return existing;
+
+            Object result = rewriter.apply(descend.test(node) ? rebuild(node) : node);
+
+            done.put(node, result);
+            return result;
+        }
+
+        private Object rebuild(@NotNull Object node) {
+            if (node instanceof Record record && isNode(record)) {
+                Object[] components = components(record);
+
+                boolean changed = false;
+                for (int i = 0; i < components.length; i++) {
+                    Object rewritten = rewrite(components[i]);
+                    changed |= rewritten != components[i];
+                    components[i] = rewritten;
+                }
+
+                return changed ? construct(record.getClass(), components) : record;
+            } else if (node instanceof List<?> list) {
+                List<Object> rewritten = new ArrayList<>(list.size());
+
+                boolean changed = false;
+                for (Object element : list) {
+                    Object value = rewrite(element);
+                    changed |= value != element;
+                    rewritten.add(value);
+                }
+
+                return changed ? Collections.unmodifiableList(rewritten) : list;
+            } else if (node instanceof Map<?, ?> map) {
+                Map<Object, Object> rewritten = new LinkedHashMap<>();
+
+                boolean changed = false;
+                for (var entry : map.entrySet()) {
+                    Object value = rewrite(entry.getValue());
+                    changed |= value != entry.getValue();
+                    rewritten.put(entry.getKey(), value);
+                }
+
+                return changed ? Collections.unmodifiableMap(rewritten) : map;
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Creates a new instance of the provided record type from its components.
+     * @param type the record type
+     * @param components the record's components, in declaration order
+     * @return the new record
+     */
+    public static @NotNull Object construct(@NotNull Class<?> type, @NotNull Object[] components) {
+        try {
+            return SHAPES.get(type).constructor().newInstance(components);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException("Could not construct " + type, e.getCause());
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Could not construct " + type, e);
+        }
+    }
+
+}
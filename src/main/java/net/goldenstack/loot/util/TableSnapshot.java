@@ -0,0 +1,229 @@
+package net.goldenstack.loot.util;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * A binary snapshot of the NBT of a directory of loot tables, used to skip parsing JSON files when the directory has
+ * not changed.<br>
+ * A snapshot consists of a header, which holds a magic number, a format version, a SHA-256 hash of the path, size, and
+ * modification time of every table file, and a SHA-256 hash of the contents of every table file, followed by one
+ * uncompressed NBT compound that maps each table ID to its parsed NBT.<br>
+ * The contents hash is what keys a snapshot. The metadata hash is only a pre-check: if it differs, the snapshot is
+ * known to be stale without reading any file, but if it matches, every file is still read and hashed, as files can be
+ * edited without changing their size or modification time, and extracting or copying files can preserve both.<br>
+ * Snapshots store NBT rather than deserialized tables, as tables refer to objects (materials, tags, enchantments)
+ * that only exist in the running server. A snapshot therefore saves parsing the JSON of every table, but each file is
+ * still read to be hashed, and each table is still deserialized from its NBT.
+ */
+public class TableSnapshot {
+
+    private TableSnapshot() {}
+
+    private static final @NotNull Logger LOGGER = LoggerFactory.getLogger(TableSnapshot.class);
+
+    private static final int MAGIC = 0x54525653; // "TRVS"
+    private static final int VERSION = 3;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = Integer.BYTES * 2 + HASH_LENGTH * 2;
+
+    /**
+     * Hashes the contents of the provided table files, including their IDs, so that adding, removing, renaming, or
+     * editing any table changes the result.
+     * @param files the table files, mapped by table ID
+     * @return the SHA-256 hash of the files
+     */
+    public static byte @NotNull [] hash(@NotNull Map<NamespaceID, Path> files) {
+        MessageDigest digest = digest();
+
+        for (NamespaceID key : sortedKeys(files)) {
+            byte[] content;
+            try {
+                content = Files.readAllBytes(files.get(key));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            digest.update(key.asString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, content.length));
+            digest.update(content);
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * Hashes the path, size, and last modification time of the provided table files, including their IDs, without
+     * reading any of them. Different metadata means the files have changed, but the same metadata doesn't mean that
+     * they haven't, so this must only be used to skip {@link #hash(Map)} when it would certainly differ.
+     * @param files the table files, mapped by table ID
+     * @return the SHA-256 hash of the metadata of the files
+     */
+    public static byte @NotNull [] metadataHash(@NotNull Map<NamespaceID, Path> files) {
+        MessageDigest digest = digest();
+
+        ByteBuffer metadata = ByteBuffer.allocate(Long.BYTES * 2);
+        for (NamespaceID key : sortedKeys(files)) {
+            Path path = files.get(key);
+
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            digest.update(key.asString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(path.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(metadata.clear().putLong(attributes.size()).putLong(attributes.lastModifiedTime().toMillis()).flip());
+        }
+
+        return digest.digest();
+    }
+
+    private static @NotNull MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static @NotNull List<NamespaceID> sortedKeys(@NotNull Map<NamespaceID, Path> files) {
+        List<NamespaceID> keys = new ArrayList<>(files.keySet());
+        keys.sort(Comparator.comparing(NamespaceID::asString));
+        return keys;
+    }
+
+    /**
+     * Reads the provided snapshot by memory-mapping it, returning null if it does not exist, is unreadable, or was
+     * created from different files. The files are only read and hashed if their metadata matches the snapshot's.
+     * @param snapshot the snapshot file
+     * @param files the table files, mapped by table ID
+     * @return the NBT of each table, or null if the snapshot is missing or stale
+     */
+    public static @Nullable Map<NamespaceID, BinaryTag> read(@NotNull Path snapshot, @NotNull Map<NamespaceID, Path> files) {
+        if (!Files.isRegularFile(snapshot)) return null;
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH) return null;
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+
+            byte[] expected = new byte[HASH_LENGTH];
+            buffer.get(expected);
+            if (!Arrays.equals(expected, metadataHash(files))) return null;
+
+            buffer.get(expected);
+            if (!Arrays.equals(expected, hash(files))) return null;
+
+            CompoundBinaryTag compound = BinaryTagIO.unlimitedReader().read(new BufferInputStream(buffer));
+
+            Map<NamespaceID, BinaryTag> tags = new LinkedHashMap<>();
+            for (var entry : compound) {
+                tags.put(NamespaceID.from(entry.getKey()), entry.getValue());
+            }
+            return tags;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Ignoring unreadable loot table snapshot {}", snapshot, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the provided table NBT to a snapshot. The snapshot is written to a temporary file first and then moved
+     * into place, so readers never observe a partially written snapshot. Failing to write a snapshot is not fatal, as
+     * it's only a cache.
+     * @param snapshot the snapshot file
+     * @param files the table files the NBT was read from, mapped by table ID
+     * @param tags the NBT of each table
+     */
+    public static void write(@NotNull Path snapshot, @NotNull Map<NamespaceID, Path> files, @NotNull Map<NamespaceID, BinaryTag> tags) {
+        byte[] metadataHash = metadataHash(files);
+        byte[] hash = hash(files);
+
+        CompoundBinaryTag.Builder compound = CompoundBinaryTag.builder();
+        for (var entry : tags.entrySet()) {
+            compound.put(entry.getKey().asString(), entry.getValue());
+        }
+
+        Path temporary = null;
+        try {
+            Path parent = snapshot.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            temporary = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.write(metadataHash);
+                output.write(hash);
+                BinaryTagIO.writer().write(compound.build(), output);
+            }
+
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write loot table snapshot {}", snapshot, e);
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final @NotNull ByteBuffer buffer;
+
+        private BufferInputStream(@NotNull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.EnchantmentUtils;
+import net.goldenstack.loot.util.VanillaInterface;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import net.minestom.server.item.enchant.Enchantment;
+import net.minestom.server.registry.DynamicRegistry;
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that scores and enchantment levels are derived at most once per generation, however many nodes need them.
+ */
+class DerivedValuesTest {
+
+    @BeforeAll
+    static void init() {
+        LootFixtures.tables();
+    }
+
+    @Test
+    void scoresAreLookedUpOncePerGeneration() {
+        LootNumber score = new LootNumber.Score(new LootScore.Fixed("holder"), "objective", 1);
+
+        // The score is needed for the rolls and again by every roll's entry
+        LootTable table = new LootTable(List.of(new LootPool(score, new LootNumber.Constant(0),
+                List.of(new LootEntry.Item(List.of(), List.of(new LootFunction.SetCount(List.of(), score, false)), 1, 0, Material.DIAMOND)),
+                List.of(), List.of()
+        )), List.of(), null);
+
+        CountingScores vanilla = new CountingScores(3);
+        LootContext context = LootContext.from(vanilla, Map.of(LootContext.RANDOM, new Random(0)));
+
+        assertEquals(List.of(ItemStack.of(Material.DIAMOND, 3), ItemStack.of(Material.DIAMOND, 3), ItemStack.of(Material.DIAMOND, 3)),
+                table.generate(context));
+        assertEquals(1, vanilla.lookups);
+
+        // A new generation looks it up again, as scores may have changed
+        vanilla.score = 2;
+        assertEquals(List.of(ItemStack.of(Material.DIAMOND, 2), ItemStack.of(Material.DIAMOND, 2)), table.generate(context));
+        assertEquals(2, vanilla.lookups);
+    }
+
+    @Test
+    void enchantmentLevelsAreDerivedFromTheirSource() {
+        LootContext context = LootContext.from(VanillaInterface.defaults(), Map.of(
+                LootContext.RANDOM, new Random(0),
+                LootContext.TOOL, LootFixtures.fortunePickaxe()
+        ));
+
+        DynamicRegistry.Key<Enchantment> fortune = DynamicRegistry.Key.of("minecraft:fortune");
+        DynamicRegistry.Key<Enchantment> looting = DynamicRegistry.Key.of("minecraft:looting");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(3, EnchantmentUtils.level(context, LootContext.TOOL, fortune));
+            assertEquals(0, EnchantmentUtils.level(context, LootContext.TOOL, looting));
+            assertEquals(0, EnchantmentUtils.level(context, LootContext.ATTACKING_ENTITY, fortune));
+        }
+    }
+
+    /**
+     * A vanilla interface that gives every holder the same score, counting how many times it's looked up.
+     */
+    private static final class CountingScores implements VanillaInterface {
+
+        private final @NotNull VanillaInterface defaults = VanillaInterface.defaults();
+
+        int score;
+        int lookups;
+
+        CountingScores(int score) {
+            this.score = score;
+        }
+
+        @Override
+        public @Nullable Integer score(@NotNull Entity entity, @NotNull String objective) {
+            lookups++;
+            return score;
+        }
+
+        @Override
+        public @Nullable Integer score(@NotNull String name, @NotNull String objective) {
+            lookups++;
+            return score;
+        }
+
+        @Override
+        public @NotNull BinaryTag serializeEntity(@NotNull Entity entity) {
+            return CompoundBinaryTag.empty();
+        }
+
+        @Override
+        public @NotNull ItemStack enchant(@NotNull Random random, @NotNull ItemStack item, int levels, @Nullable List<DynamicRegistry.Key<Enchantment>> enchantments) {
+            return item;
+        }
+
+        @Override
+        public @Nullable ItemStack smelt(@NotNull ItemStack input) {
+            return null;
+        }
+
+        @Override
+        public @Nullable LootTable tableRegistry(@NotNull NamespaceID key) {
+            return defaults.tableRegistry(key);
+        }
+
+        @Override
+        public @Nullable LootPredicate predicateRegistry(@NotNull NamespaceID key) {
+            return defaults.predicateRegistry(key);
+        }
+
+        @Override
+        public @Nullable LootFunction functionRegistry(@NotNull NamespaceID key) {
+            return defaults.functionRegistry(key);
+        }
+
+        @Override
+        public @Nullable CompoundBinaryTag commandStorage(@NotNull NamespaceID key) {
+            return defaults.commandStorage(key);
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Generates every bundled vanilla table with each generator implementation, checking that they all produce exactly
+ * the same items from the same seeds, and consume the same amount of randomness doing so.
+ */
+class GeneratorEquivalenceTest {
+
+    private static final int SEEDS = 500;
+
+    static @NotNull Stream<NamespaceID> tables() {
+        return LootFixtures.tables().keySet().stream().sorted(Comparator.comparing(NamespaceID::asString));
+    }
+
+    @ParameterizedTest
+    @MethodSource("tables")
+    void programMatchesTable(@NotNull NamespaceID id) {
+        assertSameLoot(LootFixtures.tables().get(id), LootProgram::compile);
+    }
+
+    @ParameterizedTest
+    @MethodSource("tables")
+    void compiledTableMatchesTable(@NotNull NamespaceID id) {
+        assertSameLoot(LootFixtures.tables().get(id), CompiledTable::compile);
+    }
+
+    /**
+     * Asserts that the generator compiled from the provided table generates the same loot as the table itself, in every
+     * situation, for every seed.
+     */
+    static void assertSameLoot(@NotNull LootTable table, @NotNull Function<LootTable, LootGenerator> compiler) {
+        LootGenerator generator = compiler.apply(table);
+
+        int items = 0;
+        for (Map<LootContext.Key<?>, Object> situation : LootFixtures.situations()) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                LootContext expectedContext = LootFixtures.context(seed, situation);
+                LootContext actualContext = LootFixtures.context(seed, situation);
+
+                List<ItemStack> expected = table.generate(expectedContext);
+                List<ItemStack> actual = generator.generate(actualContext);
+
+                assertEquals(expected, actual, "Loot for seed " + seed + " in " + situation);
+                assertEquals(expectedContext.require(LootContext.RANDOM).nextLong(), actualContext.require(LootContext.RANDOM).nextLong(),
+                        "Random state after seed " + seed + " in " + situation);
+
+                items += expected.size();
+            }
+        }
+
+        assertTrue(items > 0, "The table never generated anything, so nothing was compared");
+    }
+
+}
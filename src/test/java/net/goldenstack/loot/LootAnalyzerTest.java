@@ -0,0 +1,123 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.item.Material;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the distributions computed by {@link LootAnalyzer} with those measured by {@link LootSimulator}. Every
+ * probability must be within five standard errors of the simulated frequency, plus some slack for the parts of the
+ * table that the analyzer has to sample itself.
+ */
+class LootAnalyzerTest {
+
+    private static final long RUNS = 200_000;
+
+    @BeforeAll
+    static void init() {
+        LootFixtures.tables();
+    }
+
+    @Test
+    void oreDropsWithExplosionDecay() {
+        // Fortune III with the ore_drops formula, then explosion decay of the result
+        assertAgrees(LootFixtures.table("blocks/diamond_ore"), Map.of(
+                LootContext.TOOL, LootFixtures.fortunePickaxe(),
+                LootContext.EXPLOSION_RADIUS, 4f
+        ), true);
+    }
+
+    @Test
+    void binomialBonusWithExplosionDecay() {
+        // binomial_with_bonus_count on the seeds of ripe wheat, then the table's explosion decay
+        assertAgrees(LootFixtures.table("blocks/wheat"), Map.of(
+                LootContext.TOOL, LootFixtures.fortunePickaxe(),
+                LootContext.EXPLOSION_RADIUS, 2f,
+                LootContext.BLOCK_STATE, Block.WHEAT.withProperty("age", "7")
+        ), true);
+    }
+
+    @Test
+    void weightedChestPools() {
+        assertAgrees(LootFixtures.table("chests/simple_dungeon"), Map.of(), true);
+    }
+
+    @Test
+    void tableBonusesAndSampledAlternatives() {
+        // The sapling alternative is sampled, while sticks and apples each have a single entry with a random condition
+        assertAgrees(LootFixtures.table("blocks/oak_leaves"), Map.of(
+                LootContext.TOOL, LootFixtures.fortunePickaxe(),
+                LootContext.EXPLOSION_RADIUS, 4f
+        ), false);
+    }
+
+    @Test
+    void subsetsOfEntriesWithRandomConditions() {
+        // Which entries pass changes the total weight, so every subset of the three random entries is enumerated
+        LootTable table = new LootTable(List.of(new LootPool(
+                new LootNumber.Constant(2), new LootNumber.Constant(0),
+                List.of(
+                        new LootEntry.Item(List.of(chance(0.3)), List.of(), 3, 0, Material.DIAMOND),
+                        new LootEntry.Item(List.of(chance(0.6)), List.of(new LootFunction.SetCount(List.of(),
+                                new LootNumber.Uniform(new LootNumber.Constant(1), new LootNumber.Constant(3)), false)), 5, 0, Material.EMERALD),
+                        new LootEntry.Item(List.of(), List.of(), 2, 0, Material.GOLD_INGOT),
+                        new LootEntry.Item(List.of(chance(0.5)), List.of(), 4, 0, Material.IRON_INGOT)
+                ),
+                List.of(), List.of()
+        )), List.of(), null);
+
+        assertAgrees(table, Map.of(), true);
+    }
+
+    private static void assertAgrees(@NotNull LootTable table, @NotNull Map<LootContext.Key<?>, Object> situation, boolean exact) {
+        LootContext context = LootFixtures.context(0, situation);
+
+        LootAnalyzer.Result analysis = LootAnalyzer.analyze(table, context);
+        LootSimulator.Result simulation = LootSimulator.simulate(table, context, RUNS, 1, null);
+
+        if (exact) {
+            assertTrue(analysis.exact(), "The analyzer approximated " + analysis.approximations());
+        }
+
+        Set<Material> materials = new LinkedHashSet<>(analysis.drops().keySet());
+        materials.addAll(simulation.materials().keySet());
+        assertFalse(materials.isEmpty(), "Nothing was generated, so nothing was compared");
+
+        // The analyzer samples approximated parts 100,000 times, which adds its own error
+        double slack = exact ? 1e-4 : 0.01;
+
+        for (Material material : materials) {
+            LootAnalyzer.Drop drop = analysis.get(material);
+            LootSimulator.Distribution distribution = simulation.get(material);
+
+            int amounts = Math.max(drop.distribution().length, distribution.histogram().length);
+            double variance = 0;
+            for (int amount = 0; amount < amounts; amount++) {
+                double expected = drop.probability(amount);
+                double observed = (double) distribution.runs(amount) / RUNS;
+
+                double tolerance = 5 * Math.sqrt(expected * (1 - expected) / RUNS) + slack;
+                assertEquals(expected, observed, tolerance, "Probability of " + amount + " " + material.name());
+
+                variance += expected * (amount - drop.mean()) * (amount - drop.mean());
+            }
+
+            double tolerance = 5 * Math.sqrt(variance / RUNS) + slack;
+            assertEquals(drop.mean(), distribution.mean(), tolerance, "Mean amount of " + material.name());
+        }
+    }
+
+    private static @NotNull LootPredicate chance(double chance) {
+        return new LootPredicate.RandomChance(new LootNumber.Constant(chance));
+    }
+
+}
@@ -0,0 +1,72 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that batches generated sequentially and on a pool are laid out identically, and match generating each context
+ * on its own.
+ */
+class LootBatchTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void init() {
+        LootFixtures.tables();
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdown() {
+        pool.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 63, 64, 65, 1_000})
+    void pooledLayoutMatchesSequential(int size) {
+        LootTable table = LootFixtures.table("chests/simple_dungeon");
+
+        LootBatch sequential = table.generateBatch(contexts(size));
+        LootBatch pooled = table.generateBatch(contexts(size), pool);
+
+        assertEquals(size, sequential.size());
+        assertEquals(size, pooled.size());
+        assertEquals(sequential.items(), pooled.items());
+
+        List<LootContext> contexts = contexts(size);
+        for (int i = 0; i < size; i++) {
+            List<ItemStack> expected = table.generate(contexts.get(i));
+
+            assertEquals(sequential.offset(i), pooled.offset(i), "Offset of context " + i);
+            assertEquals(expected.size(), sequential.count(i), "Count of context " + i);
+            assertEquals(expected, sequential.get(i), "Items of context " + i);
+            assertEquals(expected, pooled.get(i), "Pooled items of context " + i);
+        }
+        assertEquals(sequential.offset(size), pooled.offset(size));
+        assertEquals(sequential.items().size(), sequential.offset(size));
+    }
+
+    /**
+     * Creates the provided number of contexts, each with its own seeded random.
+     */
+    private static @NotNull List<LootContext> contexts(int size) {
+        List<LootContext> contexts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            contexts.add(LootFixtures.context(i, Map.of()));
+        }
+        return contexts;
+    }
+
+}
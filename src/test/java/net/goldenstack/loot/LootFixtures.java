@@ -0,0 +1,92 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.EnchantmentUtils;
+import net.goldenstack.loot.util.VanillaInterface;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import net.minestom.server.registry.DynamicRegistry;
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * The vanilla tables bundled with the tests, and the situations they're generated in.<br>
+ * The tables are copies of vanilla's, with the empty condition and function lists that the serializers require written
+ * out; the simple dungeon chest leaves out its enchanted books, as the default vanilla interface can't enchant them,
+ * and keeps one smithing template. Together, they cover alternatives, pool and entry conditions, static and dynamic
+ * pools, uniform rolls, empty entries, every apply_bonus formula, explosion decay, and random sequences.
+ */
+final class LootFixtures {
+
+    private LootFixtures() {}
+
+    private static Map<NamespaceID, LootTable> tables;
+
+    /**
+     * Returns the bundled tables, reading them the first time this is called.
+     */
+    static synchronized @NotNull Map<NamespaceID, LootTable> tables() {
+        if (tables == null) {
+            MinecraftServer.init();
+            try {
+                tables = Trove.readTables(Path.of(Objects.requireNonNull(LootFixtures.class.getResource("/tables")).toURI()));
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Returns the bundled table with the provided path, such as {@code blocks/diamond_ore}.
+     */
+    static @NotNull LootTable table(@NotNull String path) {
+        return Objects.requireNonNull(tables().get(NamespaceID.from(path)), path);
+    }
+
+    /**
+     * Returns the values of each situation tables are generated in, other than the random: nothing, a fortune III
+     * pickaxe, an explosion, a ripe wheat block broken with fortune in an explosion, and some luck.
+     */
+    static @NotNull List<Map<LootContext.Key<?>, Object>> situations() {
+        ItemStack pickaxe = fortunePickaxe();
+
+        return List.of(
+                Map.of(),
+                Map.of(LootContext.TOOL, pickaxe),
+                Map.of(LootContext.EXPLOSION_RADIUS, 4f),
+                Map.of(LootContext.TOOL, pickaxe, LootContext.EXPLOSION_RADIUS, 2f,
+                        LootContext.BLOCK_STATE, Block.WHEAT.withProperty("age", "7")),
+                Map.of(LootContext.LUCK, 1.5d)
+        );
+    }
+
+    /**
+     * Returns a diamond pickaxe enchanted with fortune III.
+     */
+    static @NotNull ItemStack fortunePickaxe() {
+        tables();
+
+        return EnchantmentUtils.modifyItem(ItemStack.of(Material.DIAMOND_PICKAXE),
+                map -> map.put(DynamicRegistry.Key.of("minecraft:fortune"), 3));
+    }
+
+    /**
+     * Creates a context with the provided situation's values and a random with the provided seed.
+     */
+    static @NotNull LootContext context(long seed, @NotNull Map<LootContext.Key<?>, Object> situation) {
+        Map<LootContext.Key<?>, Object> values = new HashMap<>(situation);
+        values.put(LootContext.RANDOM, new Random(seed));
+        return LootContext.from(VanillaInterface.defaults(), values);
+    }
+
+}
@@ -0,0 +1,94 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.VanillaInterface;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that rolling a simple pool into a reused list doesn't allocate, using the allocation counter of the current
+ * thread. Each generation may allocate a constant amount (e.g. the sink wrapping the list), but nothing per roll.
+ */
+class LootPoolAllocationTest {
+
+    private static final int ROLLS = 1_000;
+
+    private static final int WARMUP = 5_000;
+    private static final int MEASURED = 1_000;
+
+    @BeforeAll
+    static void init() {
+        MinecraftServer.init();
+    }
+
+    @Test
+    void aliasPathDoesNotAllocate() {
+        LootPool pool = pool(List.of(
+                item(Material.DIAMOND, List.of(), 1),
+                item(Material.EMERALD, List.of(), 3)
+        ));
+        assertNotNull(((PoolEntries) pool.entries()).alias(), "Static entries should use the alias table");
+
+        assertNoGarbagePerRoll(pool);
+    }
+
+    @Test
+    void scratchPathDoesNotAllocate() {
+        // A predicate makes the entries dynamic, so choices are gathered into the per-thread scratch arrays
+        LootPool pool = pool(List.of(
+                item(Material.DIAMOND, List.of(new LootPredicate.SurvivesExplosion()), 1),
+                item(Material.EMERALD, List.of(), 3),
+                item(Material.GOLD_INGOT, List.of(new LootPredicate.KilledByPlayer()), 2)
+        ));
+        assertNull(((PoolEntries) pool.entries()).alias(), "Dynamic entries should not use the alias table");
+
+        assertNoGarbagePerRoll(pool);
+    }
+
+    private static void assertNoGarbagePerRoll(@NotNull LootPool pool) {
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled(),
+                "Thread allocation counters are unavailable");
+
+        LootContext context = LootContext.from(VanillaInterface.defaults(), Map.of(LootContext.RANDOM, new Random(0)));
+        List<ItemStack> output = new ArrayList<>(ROLLS);
+
+        // Let the JIT compile the roll path before measuring it
+        for (int i = 0; i < WARMUP; i++) {
+            output.clear();
+            pool.generate(context, output);
+        }
+        assertEquals(ROLLS, output.size());
+
+        long before = bean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED; i++) {
+            output.clear();
+            pool.generate(context, output);
+        }
+        long allocated = bean.getCurrentThreadAllocatedBytes() - before;
+
+        double perRoll = (double) allocated / ((long) MEASURED * ROLLS);
+        assertTrue(perRoll < 0.5, "Allocated " + allocated + " bytes over " + MEASURED * ROLLS + " rolls (" + perRoll + " per roll)");
+    }
+
+    private static @NotNull LootPool pool(@NotNull List<LootEntry> entries) {
+        return new LootPool(new LootNumber.Constant(ROLLS), new LootNumber.Constant(0), entries, List.of(), List.of());
+    }
+
+    private static @NotNull LootEntry item(@NotNull Material material, @NotNull List<LootPredicate> predicates, long weight) {
+        return new LootEntry.Item(predicates, List.of(), weight, 0, material);
+    }
+
+}
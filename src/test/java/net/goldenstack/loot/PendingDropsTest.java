@@ -0,0 +1,66 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.Instance;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that drops waiting for the next tick of an instance fail, without running, when it's unregistered.
+ */
+class PendingDropsTest {
+
+    @BeforeAll
+    static void init() {
+        LootFixtures.tables();
+    }
+
+    @Test
+    void unregisteringFailsPendingDrops() {
+        Instance world = MinecraftServer.getInstanceManager().createInstanceContainer();
+        AtomicInteger runs = new AtomicInteger();
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            futures.add(Trove.nextTick(world, i, instance -> runs.incrementAndGet()));
+        }
+
+        MinecraftServer.getInstanceManager().unregisterInstance(world);
+
+        for (CompletableFuture<Integer> future : futures) {
+            assertTrue(future.isCompletedExceptionally());
+        }
+
+        // The instance is never ticked again, but running the scheduled ticks must not spawn anything either
+        world.tick(System.currentTimeMillis());
+        assertEquals(0, runs.get());
+
+        assertTrue(Trove.nextTick(world, 0, instance -> runs.incrementAndGet()).isCompletedExceptionally());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void registeredInstancesRunDropsOnTheirNextTick() {
+        Instance world = MinecraftServer.getInstanceManager().createInstanceContainer();
+        try {
+            AtomicInteger runs = new AtomicInteger();
+
+            CompletableFuture<String> future = Trove.nextTick(world, "dropped", instance -> runs.incrementAndGet());
+            world.tick(System.currentTimeMillis());
+
+            assertEquals("dropped", future.join());
+            assertEquals(1, runs.get());
+        } finally {
+            MinecraftServer.getInstanceManager().unregisterInstance(world);
+        }
+    }
+
+}
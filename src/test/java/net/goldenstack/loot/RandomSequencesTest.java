@@ -0,0 +1,146 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.VanillaInterface;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that every generator draws from a table's random sequence when the context has no random of its own, and that
+ * contexts without a random are rejected wherever they'd be generated off the tick thread.
+ */
+class RandomSequencesTest {
+
+    private static final long SEED = 42;
+    private static final int RUNS = 200;
+
+    private static final @NotNull LootContext.Slot<Object> IDENTITY = LootContext.slot(context -> new Object());
+
+    private Instance world;
+
+    @BeforeEach
+    void createWorld() {
+        LootFixtures.tables();
+        world = MinecraftServer.getInstanceManager().createInstanceContainer();
+    }
+
+    @AfterEach
+    void removeWorld() {
+        MinecraftServer.getInstanceManager().unregisterInstance(world);
+    }
+
+    static @NotNull Stream<Function<LootTable, LootGenerator>> engines() {
+        return Stream.of(table -> table, LootProgram::compile, CompiledTable::compile);
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void generatorsDrawFromTheSequence(@NotNull Function<LootTable, LootGenerator> compiler) {
+        LootTable table = LootFixtures.table("blocks/oak_leaves");
+        Map<LootContext.Key<?>, Object> situation = Map.of(LootContext.TOOL, LootFixtures.fortunePickaxe());
+        LootGenerator generator = compiler.apply(table);
+
+        // The same sequence, drawn from explicitly
+        Random expectedRandom = new RandomSequences(SEED).get(Objects.requireNonNull(table.randomSequence()));
+
+        RandomSequences.install(world, SEED);
+
+        int items = 0;
+        for (int run = 0; run < RUNS; run++) {
+            List<ItemStack> expected = table.generate(context(situation, expectedRandom));
+            List<ItemStack> actual = generator.generate(context(situation, null));
+
+            assertEquals(expected, actual, "Loot of run " + run);
+            items += expected.size();
+        }
+        assertTrue(items > 0, "The table never generated anything, so nothing was compared");
+
+        // Both must have drawn the same numbers from the sequence
+        assertEquals(expectedRandom.nextLong(), RandomSequences.of(world).get(table.randomSequence()).nextLong());
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void explicitRandomsLeaveTheSequenceAlone(@NotNull Function<LootTable, LootGenerator> compiler) {
+        LootTable table = LootFixtures.table("blocks/oak_leaves");
+        LootGenerator generator = compiler.apply(table);
+
+        RandomSequences sequences = RandomSequences.install(world, SEED);
+        long first = new RandomSequences(SEED).get(Objects.requireNonNull(table.randomSequence())).nextLong();
+
+        for (int run = 0; run < RUNS; run++) {
+            generator.generate(context(Map.of(), new Random(run)));
+        }
+
+        assertEquals(first, sequences.get(table.randomSequence()).nextLong());
+    }
+
+    @Test
+    void applyingKeepsDerivedValues() {
+        LootTable table = LootFixtures.table("blocks/oak_leaves");
+        RandomSequences.install(world, SEED);
+
+        LootContext context = context(Map.of(), null);
+        Object derived = context.derive(IDENTITY);
+
+        LootContext applied = RandomSequences.apply(context, table.randomSequence());
+
+        assertNotSame(context, applied);
+        assertTrue(applied.has(LootContext.RANDOM));
+        assertSame(world, applied.get(LootContext.WORLD));
+        assertSame(derived, applied.derive(IDENTITY));
+    }
+
+    @Test
+    void offThreadGenerationRequiresARandom() {
+        LootTable table = LootFixtures.table("blocks/oak_leaves");
+        RandomSequences.install(world, SEED);
+
+        assertThrows(IllegalArgumentException.class, () -> table.generateAsync(context(Map.of(), null), Runnable::run));
+
+        List<LootContext> contexts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            contexts.add(context(Map.of(), i == 5 ? null : new Random(i)));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> table.generateBatch(contexts, pool));
+        } finally {
+            pool.shutdown();
+        }
+
+        // Generating sequentially on the tick thread is still allowed
+        assertEquals(10, table.generateBatch(contexts).size());
+    }
+
+    /**
+     * Creates a context in the test world with the provided situation's values and random, if any.
+     */
+    private @NotNull LootContext context(@NotNull Map<LootContext.Key<?>, Object> situation, @Nullable Random random) {
+        Map<LootContext.Key<?>, Object> values = new HashMap<>(situation);
+        values.put(LootContext.WORLD, world);
+        if (random != null) values.put(LootContext.RANDOM, random);
+        return LootContext.from(VanillaInterface.defaults(), values);
+    }
+
+}
@@ -0,0 +1,163 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.VanillaInterface;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import net.minestom.server.utils.NamespaceID;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that optimized tables generate the same loot as the originals. Folds that only rewrite the tree keep the
+ * exact loot of every seed; folds that skip random draws whose outcome is already decided keep the distribution of the
+ * loot, but not the loot of each seed.
+ */
+class TableOptimizerTest {
+
+    private static final int SEEDS = 20_000;
+
+    @BeforeAll
+    static void init() {
+        LootFixtures.tables();
+    }
+
+    @ParameterizedTest
+    @MethodSource("net.goldenstack.loot.GeneratorEquivalenceTest#tables")
+    void vanillaTablesGenerateTheSameLoot(@NotNull NamespaceID id) {
+        // Vanilla tables have nothing that draws a decided random number, so every seed must match exactly
+        GeneratorEquivalenceTest.assertSameLoot(LootFixtures.tables().get(id), table -> TableOptimizer.optimize(table).table());
+    }
+
+    @Test
+    void removesPoolsThatNeverRoll() {
+        LootTable table = new LootTable(List.of(
+                pool(new LootNumber.Constant(0), new LootNumber.Constant(0), List.of(), item(Material.DIAMOND)),
+                pool(new LootNumber.Constant(0), new LootNumber.Constant(-0.0), List.of(), item(Material.EMERALD))
+        ), List.of(), null);
+
+        TableOptimizer.Result result = TableOptimizer.optimize(table);
+
+        assertEquals(List.of(), result.table().pools());
+        assertEquals(2, result.changes().get("Removed pools that never roll"));
+    }
+
+    @Test
+    void decidedDrawsAreSkippedWithoutChangingLoot() {
+        LootPredicate notKilledByPlayer = new LootPredicate.Inverted(new LootPredicate.Inverted(
+                new LootPredicate.Inverted(new LootPredicate.KilledByPlayer())));
+
+        LootTable table = new LootTable(List.of(
+                // Every random number here is decided, so the loot is always two stacks of three diamonds
+                pool(uniform(2, 2), new LootNumber.Constant(0), List.of(chance(1)),
+                        new LootEntry.Item(List.of(notKilledByPlayer), List.of(new LootFunction.Sequence(List.of(
+                                new LootFunction.SetCount(List.of(), uniform(3, 3), false)))), 1, 0, Material.DIAMOND)),
+                pool(new LootNumber.Constant(1), new LootNumber.Constant(0), List.of(chance(0)), item(Material.EMERALD)),
+                pool(new LootNumber.Constant(1), new LootNumber.Constant(0), List.of(),
+                        new LootEntry.Item(List.of(new LootPredicate.AnyOf(List.of(chance(0)))), List.of(), 1, 0, Material.GOLD_INGOT))
+        ), List.of(), null);
+
+        TableOptimizer.Result result = TableOptimizer.optimize(table);
+        LootTable optimized = result.table();
+
+        assertEquals(1, optimized.pools().size());
+        assertTrue(result.nodesAfter() < result.nodesBefore());
+
+        List<ItemStack> diamonds = List.of(ItemStack.of(Material.DIAMOND, 3), ItemStack.of(Material.DIAMOND, 3));
+        for (int seed = 0; seed < 1_000; seed++) {
+            CountingRandom originalRandom = new CountingRandom(seed);
+            CountingRandom optimizedRandom = new CountingRandom(seed);
+
+            assertEquals(diamonds, table.generate(context(originalRandom)));
+            assertEquals(diamonds, optimized.generate(context(optimizedRandom)));
+
+            // Only picking the entry still draws a number
+            assertTrue(optimizedRandom.draws < originalRandom.draws,
+                    "The optimized table drew " + optimizedRandom.draws + " times, the original " + originalRandom.draws);
+        }
+    }
+
+    @Test
+    void decidedDrawsKeepTheDistribution() {
+        LootTable table = new LootTable(List.of(
+                pool(uniform(1, 1), new LootNumber.Constant(0), List.of(chance(1)),
+                        new LootEntry.Item(List.of(), List.of(new LootFunction.SetCount(List.of(), uniform(1, 3), false)), 1, 0, Material.DIAMOND),
+                        new LootEntry.Item(List.of(), List.of(), 3, 0, Material.EMERALD),
+                        new LootEntry.Empty(List.of(), List.of(), 1, 0))
+        ), List.of(), null);
+        LootTable optimized = TableOptimizer.optimize(table).table();
+
+        Map<String, Integer> expected = new HashMap<>();
+        Map<String, Integer> actual = new HashMap<>();
+        int differing = 0;
+
+        for (int seed = 0; seed < SEEDS; seed++) {
+            String original = describe(table.generate(LootFixtures.context(seed, Map.of())));
+            String folded = describe(optimized.generate(LootFixtures.context(seed, Map.of())));
+
+            expected.merge(original, 1, Integer::sum);
+            actual.merge(folded, 1, Integer::sum);
+            if (!original.equals(folded)) differing++;
+        }
+
+        // The skipped draws shift every later draw, so individual seeds are expected to differ
+        assertTrue(differing > 0, "Skipping decided draws should change the loot of some seeds");
+
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String outcome : expected.keySet()) {
+            double expectedFrequency = expected.get(outcome) / (double) SEEDS;
+            double actualFrequency = actual.get(outcome) / (double) SEEDS;
+            // About five standard errors of the difference of two frequencies
+            assertEquals(expectedFrequency, actualFrequency, 0.025, "Frequency of " + outcome);
+        }
+    }
+
+    /**
+     * A random that counts how many times it has generated bits.
+     */
+    private static final class CountingRandom extends Random {
+        int draws;
+
+        CountingRandom(long seed) {
+            super(seed);
+        }
+
+        @Override
+        protected int next(int bits) {
+            draws++;
+            return super.next(bits);
+        }
+    }
+
+    private static @NotNull LootContext context(@NotNull Random random) {
+        return LootContext.from(VanillaInterface.defaults(), Map.of(LootContext.RANDOM, random));
+    }
+
+    private static @NotNull String describe(@NotNull List<ItemStack> items) {
+        return items.stream().map(item -> item.material().name() + " x" + item.amount()).toList().toString();
+    }
+
+    private static @NotNull LootPool pool(@NotNull LootNumber rolls, @NotNull LootNumber bonusRolls,
+                                          @NotNull List<LootPredicate> predicates, @NotNull LootEntry @NotNull ... entries) {
+        return new LootPool(rolls, bonusRolls, List.of(entries), predicates, List.of());
+    }
+
+    private static @NotNull LootEntry item(@NotNull Material material) {
+        return new LootEntry.Item(List.of(), List.of(), 1, 0, material);
+    }
+
+    private static @NotNull LootNumber uniform(int min, int max) {
+        return new LootNumber.Uniform(new LootNumber.Constant(min), new LootNumber.Constant(max));
+    }
+
+    private static @NotNull LootPredicate chance(double chance) {
+        return new LootPredicate.RandomChance(new LootNumber.Constant(chance));
+    }
+
+}
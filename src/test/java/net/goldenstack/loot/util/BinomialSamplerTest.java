@@ -0,0 +1,130 @@
+package net.goldenstack.loot.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link BinomialSampler} against the naive loop it replaces: one {@code nextDouble()} per trial.
+ */
+class BinomialSamplerTest {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void edgeCases() {
+        RandomGenerator random = new SplittableRandom(0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, BinomialSampler.sample(random, 0, 0.5));
+            assertEquals(0, BinomialSampler.sample(random, -3, 0.5));
+            assertEquals(0, BinomialSampler.sample(random, 20, 0));
+            assertEquals(0, BinomialSampler.sample(random, 20, -0.5));
+            assertEquals(0, BinomialSampler.sample(random, 20, Double.NaN));
+            assertEquals(20, BinomialSampler.sample(random, 20, 1));
+            assertEquals(20, BinomialSampler.sample(random, 20, 1.5));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            // Inversion (n * p < 30)
+            "1, 0.5",
+            "10, 0.3",
+            "64, 0.25",
+            "59, 0.5",
+            "300, 0.01",
+            // BTPE (n * p >= 30)
+            "61, 0.5",
+            "100, 0.4",
+            "1000, 0.2",
+            "100000, 0.3",
+            // Probabilities above 0.5 sample the complement, with either algorithm
+            "50, 0.9",
+            "500, 0.8",
+            "64, 0.75"
+    })
+    void matchesNaiveLoop(int trials, double probability) {
+        long[] fast = new long[trials + 1];
+        long[] naive = new long[trials + 1];
+
+        RandomGenerator random = new SplittableRandom(trials * 31L + Double.hashCode(probability));
+        for (int i = 0; i < SAMPLES; i++) {
+            int sample = BinomialSampler.sample(random, trials, probability);
+            assertTrue(sample >= 0 && sample <= trials, "Sample " + sample + " out of range");
+            fast[sample]++;
+        }
+        // The naive loop is too slow for huge n; the exact moments still apply below
+        boolean compareNaive = (long) trials * SAMPLES <= 200_000_000L;
+        if (compareNaive) {
+            for (int i = 0; i < SAMPLES; i++) {
+                int successes = 0;
+                for (int trial = 0; trial < trials; trial++) {
+                    if (random.nextDouble() < probability) successes++;
+                }
+                naive[successes]++;
+            }
+        }
+
+        double mean = trials * probability;
+        double variance = trials * probability * (1 - probability);
+
+        assertMoments(fast, mean, variance, "sampler");
+        if (compareNaive) {
+            assertMoments(naive, mean, variance, "naive loop");
+            assertSameDistribution(fast, naive);
+        }
+    }
+
+    private static void assertMoments(long[] histogram, double mean, double variance, String name) {
+        double sum = 0, squares = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sum += (double) i * histogram[i];
+            squares += (double) i * i * histogram[i];
+        }
+        double sampleMean = sum / SAMPLES;
+        double sampleVariance = squares / SAMPLES - sampleMean * sampleMean;
+
+        // Six standard errors either way; the seeds are fixed, so this only guards against real bias
+        double meanError = 6 * Math.sqrt(variance / SAMPLES);
+        assertEquals(mean, sampleMean, meanError, "Mean of the " + name);
+
+        double varianceError = 6 * variance * Math.sqrt(2d / SAMPLES) + 1e-9;
+        assertEquals(variance, sampleVariance, varianceError + 3 * Math.sqrt(variance / SAMPLES), "Variance of the " + name);
+    }
+
+    /**
+     * Runs a two-sample chi-square test of homogeneity, merging sparse amounts so that each bin has at least 20
+     * samples between both histograms.
+     */
+    private static void assertSameDistribution(long[] first, long[] second) {
+        double statistic = 0;
+        int bins = 0;
+
+        long a = 0, b = 0;
+        for (int i = 0; i < first.length; i++) {
+            a += first[i];
+            b += second[i];
+            if (a + b < 20 && i != first.length - 1) continue;
+
+            // Both histograms have the same total, so the expected count of each is half the bin
+            double expected = (a + b) / 2d;
+            if (expected > 0) {
+                statistic += (a - expected) * (a - expected) / expected + (b - expected) * (b - expected) / expected;
+                bins++;
+            }
+            a = b = 0;
+        }
+
+        int freedom = Math.max(1, bins - 1);
+        // Roughly the 99.9999th percentile of the chi-square distribution with this many degrees of freedom
+        double critical = freedom + 5 * Math.sqrt(2d * freedom) + 10;
+        assertTrue(statistic < critical, "Chi-square statistic " + statistic + " exceeds " + critical + " with " + freedom + " degrees of freedom");
+    }
+
+}
@@ -0,0 +1,63 @@
+package net.goldenstack.loot.util;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.minestom.server.utils.NamespaceID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that snapshots are keyed by the contents of the table files, not only by their metadata.
+ */
+class TableSnapshotTest {
+
+    private static final NamespaceID ID = NamespaceID.from("blocks/dirt");
+    private static final Map<NamespaceID, BinaryTag> TAGS = Map.of(ID, CompoundBinaryTag.builder().putString("type", "block").build());
+
+    @Test
+    void unchangedFilesReuseTheSnapshot(@TempDir Path directory) throws IOException {
+        Path table = Files.writeString(directory.resolve("dirt.json"), "{\"type\": \"block\"}");
+        Path snapshot = directory.resolve("tables.snapshot");
+
+        TableSnapshot.write(snapshot, Map.of(ID, table), TAGS);
+
+        assertEquals(TAGS, TableSnapshot.read(snapshot, Map.of(ID, table)));
+    }
+
+    @Test
+    void editsWithTheSameMetadataAreStale(@TempDir Path directory) throws IOException {
+        Path table = Files.writeString(directory.resolve("dirt.json"), "{\"type\": \"block\"}");
+        Path snapshot = directory.resolve("tables.snapshot");
+
+        TableSnapshot.write(snapshot, Map.of(ID, table), TAGS);
+
+        // Same size, and the modification time is restored, as extracting an archive or copying with -p would
+        FileTime modified = Files.getLastModifiedTime(table);
+        Files.writeString(table, "{\"type\": \"chest\"}");
+        Files.setLastModifiedTime(table, modified);
+
+        assertNull(TableSnapshot.read(snapshot, Map.of(ID, table)));
+    }
+
+    @Test
+    void changedMetadataIsStale(@TempDir Path directory) throws IOException {
+        Path table = Files.writeString(directory.resolve("dirt.json"), "{\"type\": \"block\"}");
+        Path snapshot = directory.resolve("tables.snapshot");
+
+        TableSnapshot.write(snapshot, Map.of(ID, table), TAGS);
+
+        Files.writeString(table, "{\"type\": \"block\", \"pools\": []}");
+
+        assertNull(TableSnapshot.read(snapshot, Map.of(ID, table)));
+    }
+
+}